@@ -0,0 +1,31 @@
+package com.ecom.prodmanager.benchmark;
+
+import com.ecom.prodmanager.model.Product;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Catalog fixtures shared by the benchmarks; dynamic fields alternate between strings and numbers
+final class BenchmarkProducts {
+
+    private BenchmarkProducts() {
+    }
+
+    static Product product(int i, int dynamicFields) {
+        Product product = new Product(new ObjectId().toHexString(), "Product " + i, "Description of product " + i,
+                "Category " + (i % 20), 10.0 + i);
+        for (int f = 0; f < dynamicFields; f++) {
+            product.addField("attribute" + f, f % 2 == 0 ? "value" + f : f);
+        }
+        return product;
+    }
+
+    static List<Product> catalog(int products, int dynamicFields) {
+        List<Product> catalog = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            catalog.add(product(i, dynamicFields));
+        }
+        return catalog;
+    }
+}
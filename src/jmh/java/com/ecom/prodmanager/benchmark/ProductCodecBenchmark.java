@@ -0,0 +1,116 @@
+package com.ecom.prodmanager.benchmark;
+
+import com.ecom.prodmanager.converter.ProductCodec;
+import com.ecom.prodmanager.converter.ProductConverter;
+import com.ecom.prodmanager.model.Product;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing a whole collection's worth of products through Document plus
+ * ProductConverter against ProductCodec. Run with -prof gc to see the allocation difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductCodecBenchmark {
+
+    @Param({"10000"})
+    public int products;
+
+    @Param({"0", "10"})
+    public int dynamicFields;
+
+    private final CodecRegistry registry = CodecRegistries.fromRegistries(
+            CodecRegistries.fromProviders(new ProductCodec.Provider()),
+            MongoClientSettings.getDefaultCodecRegistry());
+    private final Codec<Product> productCodec = registry.get(Product.class);
+    private final Codec<Document> documentCodec = registry.get(Document.class);
+    private final ProductConverter.ProductToDocumentConverter toDocument = new ProductConverter.ProductToDocumentConverter();
+    private final ProductConverter.DocumentToProductConverter toProduct = new ProductConverter.DocumentToProductConverter();
+
+    private List<Product> catalog;
+    private List<byte[]> storedDocuments;
+
+    @Setup
+    public void setUp() {
+        catalog = new ArrayList<>(products);
+        storedDocuments = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product(new ObjectId().toHexString(), "Product " + i, "Description of product " + i,
+                    "Category " + (i % 20), 10.0 + i);
+            for (int f = 0; f < dynamicFields; f++) {
+                product.addField("attribute" + f, f % 2 == 0 ? "value" + f : f);
+            }
+            catalog.add(product);
+            storedDocuments.add(new RawBsonDocument(toDocument.convert(product), documentCodec).getByteBuffer().array());
+        }
+    }
+
+    @Benchmark
+    public void readWithConverter(Blackhole blackhole) {
+        for (byte[] stored : storedDocuments) {
+            Document document = documentCodec.decode(reader(stored), DecoderContext.builder().build());
+            blackhole.consume(toProduct.convert(document));
+        }
+    }
+
+    @Benchmark
+    public void readWithCodec(Blackhole blackhole) {
+        for (byte[] stored : storedDocuments) {
+            blackhole.consume(productCodec.decode(reader(stored), DecoderContext.builder().build()));
+        }
+    }
+
+    @Benchmark
+    public void writeWithConverter(Blackhole blackhole) {
+        for (Product product : catalog) {
+            BasicOutputBuffer buffer = new BasicOutputBuffer();
+            documentCodec.encode(new BsonBinaryWriter(buffer), toDocument.convert(product), EncoderContext.builder().build());
+            blackhole.consume(buffer.getSize());
+        }
+    }
+
+    @Benchmark
+    public void writeWithCodec(Blackhole blackhole) {
+        for (Product product : catalog) {
+            BasicOutputBuffer buffer = new BasicOutputBuffer();
+            productCodec.encode(new BsonBinaryWriter(buffer), product, EncoderContext.builder().build());
+            blackhole.consume(buffer.getSize());
+        }
+    }
+
+    private static BsonBinaryReader reader(byte[] stored) {
+        return new BsonBinaryReader(ByteBuffer.wrap(stored));
+    }
+}
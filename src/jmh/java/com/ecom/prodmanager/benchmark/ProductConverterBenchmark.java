@@ -0,0 +1,56 @@
+package com.ecom.prodmanager.benchmark;
+
+import com.ecom.prodmanager.converter.ProductConverter;
+import com.ecom.prodmanager.model.Product;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Document to Product conversion and back for a single product, as done by MongoTemplate for
+ * every product read or written through the mapping layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductConverterBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int dynamicFields;
+
+    private final ProductConverter.ProductToDocumentConverter toDocument = new ProductConverter.ProductToDocumentConverter();
+    private final ProductConverter.DocumentToProductConverter toProduct = new ProductConverter.DocumentToProductConverter();
+
+    private Product product;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        product = BenchmarkProducts.product(1, dynamicFields);
+        document = toDocument.convert(product);
+    }
+
+    @Benchmark
+    public Document productToDocument() {
+        return toDocument.convert(product);
+    }
+
+    @Benchmark
+    public Product documentToProduct() {
+        return toProduct.convert(document);
+    }
+}
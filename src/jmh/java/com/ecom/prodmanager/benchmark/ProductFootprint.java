@@ -0,0 +1,87 @@
+package com.ecom.prodmanager.benchmark;
+
+import com.ecom.prodmanager.converter.ProductCodec;
+import com.ecom.prodmanager.converter.ProductConverter;
+import com.ecom.prodmanager.model.Product;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Retained heap per product after reading a catalog from BSON, the way large result sets and the
+ * product cache hold them. Every stored document is decoded from its own bytes, so keys and
+ * category values start out as separate strings just like products read from Mongo.
+ * Usage: ./gradlew productFootprint -PfootprintArgs="200000 0 5 20"
+ * (products, then one or more dynamic field counts).
+ */
+public final class ProductFootprint {
+    private static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            CodecRegistries.fromProviders(new ProductCodec.Provider()),
+            MongoClientSettings.getDefaultCodecRegistry());
+
+    private ProductFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int[] dynamicFields = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[]{0, 5, 20};
+
+        Codec<Product> productCodec = REGISTRY.get(Product.class);
+        Codec<Document> documentCodec = REGISTRY.get(Document.class);
+        ProductConverter.ProductToDocumentConverter toDocument = new ProductConverter.ProductToDocumentConverter();
+        ProductConverter.DocumentToProductConverter toProduct = new ProductConverter.DocumentToProductConverter();
+
+        System.out.printf("%-10s %8s %14s%n", "path", "fields", "bytes/product");
+        for (int fields : dynamicFields) {
+            List<byte[]> stored = new ArrayList<>(products);
+            for (Product product : BenchmarkProducts.catalog(products, fields)) {
+                stored.add(new RawBsonDocument(toDocument.convert(product), documentCodec).getByteBuffer().array());
+            }
+            long codec = retainedPerProduct(stored, bytes -> productCodec.decode(reader(bytes), DecoderContext.builder().build()));
+            long converter = retainedPerProduct(stored, bytes -> toProduct.convert(documentCodec.decode(reader(bytes), DecoderContext.builder().build())));
+            System.out.printf("%-10s %8d %14d%n", "codec", fields, codec);
+            System.out.printf("%-10s %8d %14d%n", "converter", fields, converter);
+        }
+    }
+
+    private static long retainedPerProduct(List<byte[]> stored, Function<byte[], Product> decoder) {
+        long before = usedHeap();
+        List<Product> retained = new ArrayList<>(stored.size());
+        for (byte[] bytes : stored) {
+            retained.add(decoder.apply(bytes));
+        }
+        long after = usedHeap();
+        // The list's own backing array is not part of a product's cost
+        long listArray = 16L + 4L * stored.size();
+        long perProduct = (after - before - listArray) / retained.size();
+        retained.clear();
+        return perProduct;
+    }
+
+    private static BsonBinaryReader reader(byte[] bytes) {
+        return new BsonBinaryReader(ByteBuffer.wrap(bytes));
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
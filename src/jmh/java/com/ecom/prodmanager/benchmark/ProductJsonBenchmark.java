@@ -0,0 +1,84 @@
+package com.ecom.prodmanager.benchmark;
+
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.util.ProductJsonModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson reads and writes of single products and of a whole catalog, configured like JsonUtil
+ * and ObjectMapperConfig, plus Product.toString which goes through JsonUtil.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+    @Param({"10000"})
+    public int products;
+
+    @Param({"0", "10"})
+    public int dynamicFields;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new ProductJsonModule());
+    private final ObjectWriter writer = objectMapper.writer();
+    private final ObjectReader productReader = objectMapper.readerFor(Product.class);
+    private final ObjectReader catalogReader = objectMapper.readerForListOf(Product.class);
+
+    private Product product;
+    private byte[] productJson;
+    private List<Product> catalog;
+    private byte[] catalogJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        catalog = BenchmarkProducts.catalog(products, dynamicFields);
+        catalogJson = writer.writeValueAsBytes(catalog);
+        product = catalog.get(0);
+        productJson = writer.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] writeProduct() throws IOException {
+        return writer.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product readProduct() throws IOException {
+        return productReader.readValue(productJson);
+    }
+
+    @Benchmark
+    public byte[] writeCatalog() throws IOException {
+        return writer.writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public List<Product> readCatalog() throws IOException {
+        return catalogReader.readValue(catalogJson);
+    }
+
+    @Benchmark
+    public String productToString() {
+        return product.toString();
+    }
+}
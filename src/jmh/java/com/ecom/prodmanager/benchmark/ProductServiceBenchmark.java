@@ -0,0 +1,184 @@
+package com.ecom.prodmanager.benchmark;
+
+import com.ecom.prodmanager.converter.ProductConverter;
+import com.ecom.prodmanager.events.ProductEventOutbox;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.service.CatalogVersion;
+import com.ecom.prodmanager.service.CategoryStatsService;
+import com.ecom.prodmanager.service.ProductCache;
+import com.ecom.prodmanager.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+import jakarta.validation.Validation;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductService's write paths against an in-memory MongoTemplate: patchProduct measures the
+ * validation and $set/$unset building of a partial update, updateProduct a full replacement.
+ * Mongo round trips are left out, so the numbers are the service's own overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int dynamicFields;
+
+    private ProductService productService;
+    private String id;
+    private Product replacement;
+    private Map<String, Object> changes;
+
+    @Setup
+    public void setUp() {
+        InMemoryMongoTemplate mongoTemplate = new InMemoryMongoTemplate();
+        productService = new ProductService(null, new ProductCache(10_000, 0, Duration.ofMinutes(5), Duration.ofSeconds(5)), mongoTemplate,
+                Validation.buildDefaultValidatorFactory().getValidator(), null,
+                new ProductEventOutbox(mongoTemplate, new ObjectMapper(), false), TransactionOperations.withoutTransaction(),
+                new NoOpCategoryStatsService(mongoTemplate), new NoOpCatalogVersion(mongoTemplate));
+
+        Product product = BenchmarkProducts.product(1, dynamicFields);
+        id = product.get_id().toHexString();
+        mongoTemplate.store(product);
+        replacement = BenchmarkProducts.product(2, dynamicFields);
+
+        changes = new HashMap<>();
+        changes.put("name", "Renamed product");
+        changes.put("price", 12);
+        changes.put("color", "red");
+        changes.put("attribute0", null);
+    }
+
+    @Benchmark
+    public Optional<Product> patchProduct() {
+        return productService.patchProduct(id, changes);
+    }
+
+    @Benchmark
+    public Optional<Product> updateProduct() {
+        return productService.updateProduct(id, replacement);
+    }
+
+    // Keeps products as documents in a map and applies $set/$unset updates to them
+    static class InMemoryMongoTemplate extends MongoTemplate {
+        private final ProductConverter.ProductToDocumentConverter toDocument = new ProductConverter.ProductToDocumentConverter();
+        private final ProductConverter.DocumentToProductConverter toProduct = new ProductConverter.DocumentToProductConverter();
+        private final Map<Object, Document> documents = new HashMap<>();
+
+        InMemoryMongoTemplate() {
+            super(new UnconnectedDatabaseFactory());
+        }
+
+        void store(Product product) {
+            documents.put(product.get_id(), toDocument.convert(product));
+        }
+
+        @Override
+        public <T> T findAndModify(Query query, UpdateDefinition update, FindAndModifyOptions options, Class<T> entityClass) {
+            Document stored = documents.get(query.getQueryObject().get("_id"));
+            if (stored == null) {
+                return null;
+            }
+            Document modified = new Document(stored);
+            Document updateObject = update.getUpdateObject();
+            modified.putAll(updateObject.get("$set", new Document()));
+            updateObject.get("$unset", new Document()).keySet().forEach(modified::remove);
+            documents.put(modified.get("_id"), modified);
+            return entityClass.cast(toProduct.convert(options.isReturnNew() ? modified : stored));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T findAndReplace(Query query, T replacement, FindAndReplaceOptions options) {
+            Object id = query.getQueryObject().get("_id");
+            Document stored = documents.get(id);
+            if (stored == null) {
+                return null;
+            }
+            documents.put(id, toDocument.convert((Product) replacement));
+            return options.isReturnNew() ? replacement : (T) toProduct.convert(stored);
+        }
+    }
+
+    // Stats updates are Mongo round trips too, so they are left out
+    static class NoOpCategoryStatsService extends CategoryStatsService {
+        NoOpCategoryStatsService(MongoTemplate mongoTemplate) {
+            super(mongoTemplate, null, false);
+        }
+
+        @Override
+        public void record(Product before, Product after) {
+        }
+    }
+
+    // Like the stats, the catalog version is a round trip of its own
+    static class NoOpCatalogVersion extends CatalogVersion {
+        NoOpCatalogVersion(MongoTemplate mongoTemplate) {
+            super(mongoTemplate);
+        }
+
+        @Override
+        public void increment() {
+        }
+    }
+
+    // Never connects; every operation the benchmarks use is served by InMemoryMongoTemplate
+    static class UnconnectedDatabaseFactory implements MongoDatabaseFactory {
+        @Override
+        public MongoDatabase getMongoDatabase() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MongoDatabase getMongoDatabase(String dbName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PersistenceExceptionTranslator getExceptionTranslator() {
+            return new MongoExceptionTranslator();
+        }
+
+        @Override
+        public ClientSession getSession(ClientSessionOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MongoDatabaseFactory withSession(ClientSession session) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ecom.prodmanager.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test settings, passed as --name=value arguments:
+ * <pre>
+ *   --rps=500                          target request rate, independent of response times
+ *   --duration=PT60S --warmup=PT10S    measured run, preceded by an unreported warmup at the same rate
+ *   --products=10000                   size of the seeded catalog
+ *   --mix=read=90,list=5,write=5       relative weights of GET /{id}, GET /page and PUT /{id}
+ *   --skew=0.99                        Zipf exponent of the product ids picked, 0 for uniform
+ *   --stack=servlet                    servlet, reactive (the reactive profile) or both, one after the other
+ *   --mongo-uri=mongodb://...          use an existing MongoDB instead of the embedded one
+ * </pre>
+ */
+public record LoadProfile(int rps, Duration duration, Duration warmup, int products,
+                          Map<Endpoint, Integer> mix, double skew, List<String> stacks, String mongoUri) {
+
+    public static LoadProfile parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got '" + arg + "'");
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        LoadProfile profile = new LoadProfile(
+                Integer.parseInt(options.getOrDefault("rps", "500")),
+                Duration.parse(options.getOrDefault("duration", "PT60S")),
+                Duration.parse(options.getOrDefault("warmup", "PT10S")),
+                Integer.parseInt(options.getOrDefault("products", "10000")),
+                parseMix(options.getOrDefault("mix", "read=90,list=5,write=5")),
+                Double.parseDouble(options.getOrDefault("skew", "0.99")),
+                parseStacks(options.getOrDefault("stack", "servlet")),
+                options.get("mongo-uri"));
+        if (profile.rps < 1 || profile.products < 1 || profile.skew < 0) {
+            throw new IllegalArgumentException("rps and products must be positive and skew must not be negative");
+        }
+        return profile;
+    }
+
+    private static List<String> parseStacks(String stack) {
+        return switch (stack) {
+            case "servlet", "reactive" -> List.of(stack);
+            case "both" -> List.of("servlet", "reactive");
+            default -> throw new IllegalArgumentException("Unsupported stack '" + stack + "'");
+        };
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.split("=");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry '" + entry + "'");
+            }
+            weights.put(Endpoint.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+        return weights;
+    }
+
+    public enum Endpoint {
+        READ("GET /api/products/{id}"),
+        LIST("GET /api/products/page"),
+        WRITE("PUT /api/products/{id}");
+
+        private final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecom.prodmanager.loadtest;
+
+import com.ecom.prodmanager.ProdmanagerApplication;
+import com.ecom.prodmanager.model.BulkWriteResult;
+import com.ecom.prodmanager.service.ProductBulkService;
+import org.bson.types.ObjectId;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application on a random port against an embedded MongoDB (or --mongo-uri), seeds a
+ * catalog and drives it with an open-loop request mix, printing latency percentiles and throughput
+ * per endpoint. Run with ./gradlew loadTest -PloadArgs="--rps=1000"; --stack=both runs the servlet
+ * and the reactive stack back to back for comparison.
+ */
+public final class LoadTest {
+    private static final String EMBEDDED_MONGO_VERSION = "6.0.5";
+    private static final String EMBEDDED_MONGO_AUTO_CONFIGURATION = "de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadProfile profile = LoadProfile.parse(args);
+        for (String stack : profile.stacks()) {
+            run(profile, stack);
+        }
+    }
+
+    // Each stack gets a fresh application and its own seeded products, so runs do not warm each other up
+    private static void run(LoadProfile profile, String stack) throws Exception {
+        try (ConfigurableApplicationContext application = start(profile, stack)) {
+            int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+            URI baseUri = URI.create("http://localhost:" + port + "/api/products/");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            List<String> ids = seed(application, profile.products());
+            OpenLoopDriver driver = new OpenLoopDriver(client, baseUri, ids, LoadTest::productJson, profile);
+            System.out.printf("[%s] Warming up for %s at %d req/s%n", stack, profile.warmup(), profile.rps());
+            driver.run(profile.warmup());
+            System.out.printf("[%s] Measuring for %s at %d req/s, mix %s, skew %s%n", stack, profile.duration(), profile.rps(), profile.mix(), profile.skew());
+            driver.run(profile.duration()).print(System.out);
+        }
+    }
+
+    // Passed as command line arguments so they take precedence over application.properties
+    private static ConfigurableApplicationContext start(LoadProfile profile, String stack) {
+        boolean reactive = "reactive".equals(stack);
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--de.flapdoodle.mongodb.embedded.version=" + EMBEDDED_MONGO_VERSION));
+        if (profile.mongoUri() != null) {
+            arguments.add("--spring.data.mongodb.uri=" + profile.mongoUri());
+            arguments.add("--spring.autoconfigure.exclude=" + EMBEDDED_MONGO_AUTO_CONFIGURATION);
+        }
+        return new SpringApplicationBuilder(ProdmanagerApplication.class)
+                .profiles(reactive ? new String[]{"reactive"} : new String[0])
+                .run(arguments.toArray(String[]::new));
+    }
+
+    // Seeds through ProductBulkService rather than POST /bulk, which only the servlet stack serves
+    private static List<String> seed(ConfigurableApplicationContext application, int products) throws IOException {
+        List<String> ids = new ArrayList<>(products);
+        StringBuilder catalog = new StringBuilder();
+        for (int i = 0; i < products; i++) {
+            String id = new ObjectId().toHexString();
+            ids.add(id);
+            catalog.append(productJson(id)).append('\n');
+        }
+        BulkWriteResult result = application.getBean(ProductBulkService.class)
+                .upsertAll(new ByteArrayInputStream(catalog.toString().getBytes(StandardCharsets.UTF_8)));
+        if (result.getRejected() > 0) {
+            throw new IllegalStateException("Seeding rejected " + result.getRejected() + " products");
+        }
+        return ids;
+    }
+
+    private static String productJson(String id) {
+        int variant = Math.abs(id.hashCode() % 100);
+        return "{\"_id\":\"" + id + "\",\"name\":\"Product " + variant + "\",\"description\":\"Load test product\","
+                + "\"category\":\"Category " + (variant % 20) + "\",\"price\":" + (10.0 + variant) + ",\"color\":\"red\"}";
+    }
+}
@@ -0,0 +1,147 @@
+package com.ecom.prodmanager.loadtest;
+
+import com.ecom.prodmanager.loadtest.LoadProfile.Endpoint;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Sends requests on a fixed schedule derived from the target rate, whether or not earlier responses
+ * have arrived. Latency is measured from the time a request was scheduled to be sent, not from when
+ * it actually was, so a stalled server shows up in the percentiles instead of lowering the request
+ * rate (coordinated omission).
+ */
+final class OpenLoopDriver {
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final List<String> ids;
+    private final Function<String, String> productJson;
+    private final LoadProfile profile;
+    private final ZipfSampler keys;
+    private final Endpoint[] weightedEndpoints;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    OpenLoopDriver(HttpClient client, URI baseUri, List<String> ids, Function<String, String> productJson, LoadProfile profile) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.ids = ids;
+        this.productJson = productJson;
+        this.profile = profile;
+        this.keys = new ZipfSampler(ids.size(), profile.skew());
+        this.weightedEndpoints = profile.mix().entrySet().stream()
+                .flatMap(weight -> Collections.nCopies(weight.getValue(), weight.getKey()).stream())
+                .toArray(Endpoint[]::new);
+    }
+
+    Result run(Duration duration) throws InterruptedException, TimeoutException {
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : profile.mix().keySet()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        // Counts the generator itself until it stops sending, so it only drops to zero once every
+        // request has been sent and answered. Unlike a Phaser it has no limit on parties in flight.
+        AtomicLong inFlight = new AtomicLong(1);
+        CountDownLatch drained = new CountDownLatch(1);
+        long maxSendLag = 0;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long sent = 0; ; sent++) {
+            long intendedStart = start + sent * 1_000_000_000L / profile.rps();
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                maxSendLag = Math.max(maxSendLag, -wait);
+            }
+
+            Endpoint endpoint = weightedEndpoints[random.nextInt(weightedEndpoints.length)];
+            EndpointStats endpointStats = stats.get(endpoint);
+            inFlight.incrementAndGet();
+            client.sendAsync(request(endpoint), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        endpointStats.record(System.nanoTime() - intendedStart, error == null && response.statusCode() < 400);
+                        if (inFlight.decrementAndGet() == 0) {
+                            drained.countDown();
+                        }
+                    });
+        }
+        if (inFlight.decrementAndGet() == 0) {
+            drained.countDown();
+        }
+        if (!drained.await(DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException(inFlight.get() + " requests still in flight after " + DRAIN_TIMEOUT);
+        }
+        return new Result(duration, stats, maxSendLag);
+    }
+
+    private HttpRequest request(Endpoint endpoint) {
+        String id = ids.get(keys.next(random));
+        return switch (endpoint) {
+            case READ -> HttpRequest.newBuilder(baseUri.resolve("/api/products/" + id)).GET().build();
+            case LIST -> HttpRequest.newBuilder(baseUri.resolve("/api/products/page?limit=50")).GET().build();
+            case WRITE -> HttpRequest.newBuilder(baseUri.resolve("/api/products/" + id))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(productJson.apply(id)))
+                    .build();
+        };
+    }
+
+    static final class EndpointStats {
+        // Nanosecond latencies with 3 significant digits, auto-resizing for long stalls
+        private final Recorder latencies = new Recorder(3);
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long latencyNanos, boolean success) {
+            latencies.recordValue(latencyNanos);
+            if (!success) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    record Result(Duration duration, Map<Endpoint, EndpointStats> stats, long maxSendLagNanos) {
+
+        void print(PrintStream out) {
+            out.printf("%-26s %9s %9s %9s %9s %9s %9s %7s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+            stats.forEach((endpoint, endpointStats) -> {
+                Histogram histogram = endpointStats.latencies.getIntervalHistogram();
+                out.printf("%-26s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7d%n", endpoint.label(),
+                        histogram.getTotalCount(),
+                        histogram.getTotalCount() / (duration.toMillis() / 1000.0),
+                        millis(histogram.getValueAtPercentile(50)),
+                        millis(histogram.getValueAtPercentile(99)),
+                        millis(histogram.getValueAtPercentile(99.9)),
+                        millis(histogram.getMaxValue()),
+                        endpointStats.errors.get());
+            });
+            // A lagging generator means the client, not the server, limited the rate
+            out.printf("Max send lag behind schedule: %.2f ms%n", millis(maxSendLagNanos));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
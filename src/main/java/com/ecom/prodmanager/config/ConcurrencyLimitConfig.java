@@ -0,0 +1,55 @@
+package com.ecom.prodmanager.config;
+
+import com.ecom.prodmanager.controller.AdaptiveConcurrencyLimiter;
+import com.ecom.prodmanager.controller.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Adaptive admission control in front of the servlet product API, see ConcurrencyLimitFilter.
+// Reads and writes adapt separately, within the same bounds.
+@Configuration
+@ConditionalOnProperty(name = "products.concurrency-limit.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${products.concurrency-limit.initial-limit:20}") int initialLimit,
+            @Value("${products.concurrency-limit.min-limit:4}") int minLimit,
+            @Value("${products.concurrency-limit.max-limit:200}") int maxLimit,
+            @Value("${products.concurrency-limit.window:PT0.1S}") Duration window) {
+        AdaptiveConcurrencyLimiter readLimiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, window.toNanos());
+        AdaptiveConcurrencyLimiter writeLimiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, window.toNanos());
+        bindMeters(meterRegistry, readLimiter, "read");
+        bindMeters(meterRegistry, writeLimiter, "write");
+
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(readLimiter, writeLimiter));
+        registration.addUrlPatterns("/api/products/*");
+        return registration;
+    }
+
+    private static void bindMeters(MeterRegistry meterRegistry, AdaptiveConcurrencyLimiter limiter, String type) {
+        Gauge.builder("products.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("type", type)
+                .register(meterRegistry);
+        Gauge.builder("products.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("type", type)
+                .register(meterRegistry);
+        FunctionCounter.builder("products.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .description("Requests rejected with 503 because the concurrency limit was reached")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecom.prodmanager.config;
+
+import com.ecom.prodmanager.controller.ResponseSizeMetricsFilter;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Endpoint latencies (http.server.requests) and Mongo command timings (mongodb.driver.commands)
+// are auto-configured by Actuator; this adds the application specific meters.
+@Configuration
+public class MetricsConfig {
+
+    // Enables @Timed on service classes and methods
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResponseSizeMetricsFilter> allProductsResponseSizeFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<ResponseSizeMetricsFilter> registration =
+                new FilterRegistrationBean<>(new ResponseSizeMetricsFilter(meterRegistry, "/api/products/all"));
+        registration.addUrlPatterns("/api/products/all");
+        return registration;
+    }
+}
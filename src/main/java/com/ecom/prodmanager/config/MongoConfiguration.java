@@ -1,6 +1,11 @@
 package com.ecom.prodmanager.config;
 
+import com.ecom.prodmanager.converter.ProductCodec;
 import com.ecom.prodmanager.converter.ProductConverter;
+import com.mongodb.MongoClientSettings;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
@@ -28,6 +33,15 @@ public class MongoConfiguration {
     }
 
 
+    // Lets driver-level collections read and write Product directly (see ProductCodec).
+    // Static so the Mongo client can be built before this configuration is instantiated.
+    @Bean
+    public static MongoClientSettingsBuilderCustomizer productCodecCustomizer() {
+        return builder -> builder.codecRegistry(CodecRegistries.fromRegistries(
+                CodecRegistries.fromProviders(new ProductCodec.Provider()),
+                MongoClientSettings.getDefaultCodecRegistry()));
+    }
+
     @PostConstruct
     public void setUpMongoConverter() {
         List<Object> converters = new ArrayList<>();
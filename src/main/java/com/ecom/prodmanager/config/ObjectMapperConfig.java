@@ -1,9 +1,7 @@
 package com.ecom.prodmanager.config;
 
-import com.ecom.prodmanager.util.ObjectIdSerializer;
+import com.ecom.prodmanager.util.ProductJsonModule;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import org.bson.types.ObjectId;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
@@ -16,10 +14,8 @@ public class ObjectMapperConfig {
         ObjectMapper objectMapper = builder.build();
         objectMapper.findAndRegisterModules(); // Optional: Auto-detect Jackson modules
 
-        // Register the custom serializer and deserializer for ObjectId
-        SimpleModule module = new SimpleModule();
-        module.addSerializer(ObjectId.class, new ObjectIdSerializer());
-        objectMapper.registerModule(module);
+        // Register the custom serializers for ObjectId and the Product serializer/deserializer pair
+        objectMapper.registerModule(new ProductJsonModule());
 
         return objectMapper;
     }
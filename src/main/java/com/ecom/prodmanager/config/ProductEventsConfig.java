@@ -0,0 +1,65 @@
+package com.ecom.prodmanager.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+@Configuration
+public class ProductEventsConfig {
+    private static final Logger log = LoggerFactory.getLogger(ProductEventsConfig.class);
+
+    // Idempotent producer for product change events; connection settings come from spring.kafka.*
+    @Bean
+    public ProducerFactory<String, String> productEventProducerFactory(
+            KafkaProperties kafkaProperties,
+            @Value("${products.events.linger:PT0.02S}") Duration linger,
+            @Value("${products.events.batch-bytes:65536}") int batchBytes) {
+        Map<String, Object> properties = kafkaProperties.buildProducerProperties();
+        properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        properties.put(ProducerConfig.ACKS_CONFIG, "all");
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, (int) linger.toMillis());
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchBytes);
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return new DefaultKafkaProducerFactory<>(properties);
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> productEventKafkaTemplate(ProducerFactory<String, String> productEventProducerFactory) {
+        return new KafkaTemplate<>(productEventProducerFactory);
+    }
+
+    // Product writes and their outbox events share a Mongo transaction when products.outbox.transactional
+    // is set; transactions need a replica set, so standalone servers keep the default of none. Without
+    // a transaction the event is inserted after the write, and is lost if that insert fails or the
+    // process dies in between: consumers then miss that change until the product is written again.
+    @Bean
+    public TransactionOperations productTransactionOperations(
+            MongoDatabaseFactory mongoDatabaseFactory,
+            @Value("${products.outbox.transactional:false}") boolean transactional,
+            @Value("${products.events.enabled:false}") boolean eventsEnabled) {
+        if (transactional) {
+            return new TransactionTemplate(new MongoTransactionManager(mongoDatabaseFactory));
+        }
+        if (eventsEnabled) {
+            log.warn("Product events are enabled without products.outbox.transactional, an event can be lost "
+                    + "when the process fails between a product write and its outbox insert");
+        }
+        return TransactionOperations.withoutTransaction();
+    }
+}
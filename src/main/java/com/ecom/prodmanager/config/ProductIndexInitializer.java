@@ -0,0 +1,62 @@
+package com.ecom.prodmanager.config;
+
+import com.ecom.prodmanager.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates (or verifies) the indexes behind the product search queries once the application has started.
+ * ensureIndex is a no-op for indexes that already exist with the same definition.
+ */
+@Component
+public class ProductIndexInitializer {
+    private static final Logger log = LoggerFactory.getLogger(ProductIndexInitializer.class);
+
+    public static final List<Index> PRODUCT_INDEXES = List.of(
+            // Category equality with a price range and/or price sort
+            new Index().on("category", Sort.Direction.ASC).on("price", Sort.Direction.ASC).named("category_price"),
+            // Price range and/or price sort across all categories, and price pages, which sort on
+            // (price, _id) so that page N reads from the index like page 1 (see ProductSortKey)
+            new Index().on("price", Sort.Direction.ASC).on("_id", Sort.Direction.ASC).named("price_id"),
+            // Category pages
+            new Index().on("category", Sort.Direction.ASC).on("_id", Sort.Direction.ASC).named("category_id"));
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+
+    public ProductIndexInitializer(MongoTemplate mongoTemplate,
+                                   @Value("${products.indexes.ensure-on-startup:true}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            try {
+                ensureIndexes();
+            } catch (DataAccessException e) {
+                log.warn("Could not ensure product indexes, searches may fall back to collection scans", e);
+            }
+        }
+    }
+
+    public void ensureIndexes() {
+        IndexOperations indexOperations = mongoTemplate.indexOps(Product.class);
+        for (Index index : PRODUCT_INDEXES) {
+            String name = indexOperations.ensureIndex(index);
+            log.info("Ensured product index {}", name);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecom.prodmanager.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Consumer side of the supplier catalog feed, see ProductIngestListener
+@Configuration
+@ConditionalOnProperty(name = "products.ingest.enabled", havingValue = "true")
+public class ProductIngestConfig {
+
+    @Bean
+    public ConsumerFactory<String, String> productIngestConsumerFactory(
+            KafkaProperties kafkaProperties,
+            MeterRegistry meterRegistry,
+            @Value("${products.ingest.max-poll-records:1000}") int maxPollRecords) {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties();
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        DefaultKafkaConsumerFactory<String, String> consumerFactory = new DefaultKafkaConsumerFactory<>(properties);
+        // Binds the Kafka client metrics, including records-lag-max, for every consumer created
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return consumerFactory;
+    }
+
+    // Batch listener whose offsets are committed only when the listener returns. A failed batch
+    // (e.g. Mongo unreachable) is redelivered every retry-interval until it succeeds.
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> productIngestListenerContainerFactory(
+            ConsumerFactory<String, String> productIngestConsumerFactory,
+            @Value("${products.ingest.concurrency:3}") int concurrency,
+            @Value("${products.ingest.retry-interval:PT5S}") Duration retryInterval) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(productIngestConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(retryInterval.toMillis(), FixedBackOff.UNLIMITED_ATTEMPTS)));
+        return factory;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ecom.prodmanager.config;
+
+import com.ecom.prodmanager.repository.ProductRepository;
+import com.ecom.prodmanager.repository.ReactiveProductRepository;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.autoconfigure.mongo.ReactiveMongoClientFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * Beans of the reactive stack, set up only when the application runs as a reactive web application
+ * (the reactive profile). The reactive Mongo client is built here, with the same settings and
+ * customizers as the blocking one, instead of by Boot's auto-configuration, which
+ * ProdmanagerApplication excludes so the servlet stack does not open a second client. Enabling the
+ * reactive repositories turns off Boot's repository auto-configuration, so the blocking ones are
+ * enabled here as well.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableMongoRepositories(basePackageClasses = ProductRepository.class)
+@EnableReactiveMongoRepositories(basePackageClasses = ReactiveProductRepository.class)
+@Configuration
+public class ReactiveConfig {
+
+    // With Tomcat on the classpath Boot would otherwise pick Tomcat
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveMongoClient(ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers,
+                                           MongoClientSettings settings) {
+        return new ReactiveMongoClientFactory(customizers.orderedStream().toList()).createMongoClient(settings);
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(MongoClient reactiveMongoClient, MongoProperties properties,
+                                                       MappingMongoConverter mappingMongoConverter) {
+        return new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient,
+                properties.getMongoClientDatabase()), mappingMongoConverter);
+    }
+}
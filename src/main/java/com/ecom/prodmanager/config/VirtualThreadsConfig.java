@@ -0,0 +1,78 @@
+package com.ecom.prodmanager.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request, and async work such as streamed NDJSON responses, on its own virtual thread
+ * instead of Tomcat's bounded worker pool. Concurrency towards Mongo is then limited by
+ * ProductRepositoryBulkhead (products.bulkhead.enabled) rather than by the number of Tomcat threads.
+ * Only applies to the embedded Tomcat, not to war deployments.
+ * <p>
+ * Needs a Java 21 runtime. The project builds for Java 17 (Spring Boot 3.1 does not support 21), and
+ * on a Java 17 runtime this flag is a no-op: requests keep running on Tomcat's worker pool and a
+ * warning is logged at startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "products.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+    private static final int VIRTUAL_THREADS_FEATURE_VERSION = 21;
+
+    public VirtualThreadsConfig() {
+        if (!VirtualThreadsAvailable.isAvailable()) {
+            log.warn("products.virtual-threads.enabled has no effect on Java {}, virtual threads need Java {} or later",
+                    Runtime.version().feature(), VIRTUAL_THREADS_FEATURE_VERSION);
+        }
+    }
+
+    @Bean
+    @Conditional(VirtualThreadsAvailable.class)
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    @Conditional(VirtualThreadsAvailable.class)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(newVirtualThreadPerTaskExecutor());
+    }
+
+    // Looked up reflectively, as the project still compiles for Java 17
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java " + VIRTUAL_THREADS_FEATURE_VERSION
+                    + " or later, running on " + Runtime.version());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    static class VirtualThreadsAvailable implements Condition {
+        @Override
+        public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            return isAvailable();
+        }
+
+        static boolean isAvailable() {
+            return Runtime.version().feature() >= VIRTUAL_THREADS_FEATURE_VERSION;
+        }
+    }
+}
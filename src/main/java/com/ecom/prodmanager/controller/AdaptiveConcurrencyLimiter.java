@@ -0,0 +1,116 @@
+package com.ecom.prodmanager.controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to measured latency, after the gradient algorithm of Netflix's
+ * concurrency-limits library. Latencies are averaged per window (at least MIN_WINDOW_SAMPLES
+ * requests and window-length). At the end of each window, its average latency is compared with
+ * a slow moving average of past windows:
+ * - While the window average stays within TOLERANCE of the moving average, the limit grows by
+ *   about its square root.
+ * - Beyond that, the limit shrinks in proportion to the slowdown, by at most half.
+ * A window with failed requests (5xx) cuts the limit by BACKOFF_RATIO instead.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    // The long-term latency is an exponential moving average over about this many windows
+    private static final double LONG_RTT_WINDOWS = 100;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+
+    // Guarded by this
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long windowNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = windowNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    // Takes a permit, or returns false right away when the limit is reached
+    public boolean tryAcquire() {
+        int currentLimit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= currentLimit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Returns a permit taken by tryAcquire along with the request's latency. A negative latency
+    // releases the permit without sampling it; dropped marks a request that failed on our side.
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (rttNanos >= 0) {
+            sample(rttNanos, dropped, inFlightBefore);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private synchronized void sample(long rttNanos, boolean dropped, int inFlight) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        windowDropped |= dropped;
+
+        long now = System.nanoTime();
+        if (windowSamples >= MIN_WINDOW_SAMPLES && now - windowStart >= windowNanos) {
+            limit = Math.max(minLimit, Math.min(maxLimit, nextLimit((double) windowRttSum / windowSamples)));
+            windowStart = now;
+            windowRttSum = 0;
+            windowSamples = 0;
+            windowMaxInFlight = 0;
+            windowDropped = false;
+        }
+    }
+
+    private double nextLimit(double shortRtt) {
+        longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) / LONG_RTT_WINDOWS;
+        // After an overload the long-term latency lags far behind; let it catch up so the limit recovers
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (windowDropped) {
+            return limit * BACKOFF_RATIO;
+        }
+        // Latency says nothing about a limit that was not reached, so it is neither raised nor lowered
+        if (windowMaxInFlight < limit / 2) {
+            return limit;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        return limit * (1 - SMOOTHING) + target * SMOOTHING;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ecom.prodmanager.controller;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Admission control for the product API: reads (GET, HEAD) and writes each go through their own
+ * AdaptiveConcurrencyLimiter, and requests over the limit get 503 with Retry-After right away
+ * instead of queueing for a Tomcat thread. Streamed (async) responses hold their permit until
+ * they complete, but are not sampled, as their duration depends on how fast the client reads.
+ * Admin operations (EXCLUDED_PATHS) are long by nature and bypass the limiter.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    static final List<String> EXCLUDED_PATHS = List.of(
+            "/api/products/snapshots/", "/api/products/stats/rebuild", "/api/products/attributes/indexes");
+
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter readLimiter, AdaptiveConcurrencyLimiter writeLimiter) {
+        this.readLimiter = readLimiter;
+        this.writeLimiter = writeLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return EXCLUDED_PATHS.stream().anyMatch(path::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        AdaptiveConcurrencyLimiter limiter = read ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            reject(response, read ? "reads" : "writes", limiter.getLimit());
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            limiter.release(System.nanoTime() - start, true);
+            throw e;
+        }
+        if (request.isAsyncStarted()) {
+            // onComplete also follows a timeout or error, so the permit is released exactly once
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    limiter.release(-1, false);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            limiter.release(System.nanoTime() - start, response.getStatus() >= 500);
+        }
+    }
+
+    // Same body format as ProductController.GlobalExceptionHandler
+    private static void reject(HttpServletResponse response, String type, int limit) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many concurrent " + type + " (limit " + limit + ")\"}");
+    }
+}
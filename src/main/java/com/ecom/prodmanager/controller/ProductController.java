@@ -1,9 +1,38 @@
 package com.ecom.prodmanager.controller;
 
+import com.ecom.prodmanager.model.AttributeUsage;
+import com.ecom.prodmanager.model.BulkWriteResult;
+import com.ecom.prodmanager.model.CategoryStats;
+import com.ecom.prodmanager.model.MultiGetItem;
 import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductPage;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.ecom.prodmanager.model.SnapshotResult;
+import com.ecom.prodmanager.model.WriteBehindStatus;
+import com.ecom.prodmanager.repository.BulkheadFullException;
+import com.ecom.prodmanager.service.AttributeUsageTracker;
+import com.ecom.prodmanager.service.PreconditionFailedException;
+import com.ecom.prodmanager.service.ProductBulkService;
 import com.ecom.prodmanager.service.ProductService;
+import com.ecom.prodmanager.service.ProductValidationException;
+import com.ecom.prodmanager.service.ProductWriteBehindService;
+import com.ecom.prodmanager.service.WriteBehindQueueFullException;
+import com.ecom.prodmanager.snapshot.ProductSnapshotService;
+import com.ecom.prodmanager.util.ProductETags;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
@@ -11,66 +40,310 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// Servlet API; the reactive profile serves the same contract from ReactiveProductController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    // Number of products written between explicit flushes of the NDJSON stream
+    private static final int NDJSON_FLUSH_INTERVAL = 500;
+
+    static final int MAX_PAGE_SIZE = 500;
+
+    static final int MAX_MULTI_GET_IDS = 500;
+
+    static final String ATTRIBUTE_PARAMETER_PREFIX = "attr.";
+
+    static final String PREFER_HEADER = "Prefer";
+    static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    static final String RESPOND_ASYNC = "respond-async";
+
     private final ProductService productService;
+    private final ProductBulkService productBulkService;
+    private final AttributeUsageTracker attributeUsageTracker;
+    private final ProductSnapshotService productSnapshotService;
+    private final ProductWriteBehindService productWriteBehindService;
+    private final ObjectMapper objectMapper;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductBulkService productBulkService,
+                             AttributeUsageTracker attributeUsageTracker, ProductSnapshotService productSnapshotService,
+                             ProductWriteBehindService productWriteBehindService, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.productBulkService = productBulkService;
+        this.attributeUsageTracker = attributeUsageTracker;
+        this.productSnapshotService = productSnapshotService;
+        this.productWriteBehindService = productWriteBehindService;
+        this.objectMapper = objectMapper;
     }
 
-    // GET all products
+    // GET all products; fields=name,price limits each product to the listed fields (plus _id),
+    // here and on the other read endpoints. Responses carry an ETag from the catalog version; when it
+    // matches If-None-Match the response is 304 and the products are not even read.
     @GetMapping("/all")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        return new ResponseEntity<>(products, HttpStatus.OK);
+    public ResponseEntity<List<Product>> getAllProducts(@RequestParam(required = false) String fields, WebRequest request) {
+        ProductFields selected = ProductFields.parse(fields);
+        String etag = ProductETags.ofCatalog(productService.getCatalogVersion(), selected);
+        if (request.checkNotModified(etag)) {
+            // The 304 response is already complete
+            return null;
+        }
+        List<Product> products = productService.getAllProducts(selected);
+        return ResponseEntity.ok().eTag(etag).body(products);
+    }
+
+    // GET all products as newline-delimited JSON, streamed from a Mongo cursor.
+    // Writes block on the servlet output stream, so a slow client also slows down cursor reads.
+    @GetMapping(value = "/all", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(@RequestParam(required = false) String fields) {
+        ProductFields selected = ProductFields.parse(fields);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Product> products = productService.streamAllProducts(selected);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                int written = 0;
+                Iterator<Product> iterator = products.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                    if (++written % NDJSON_FLUSH_INTERVAL == 1) {
+                        generator.flush();
+                    }
+                }
+                generator.flush();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
+    // GET one page of products, continuing after the product encoded in pageToken
+    @GetMapping("/page")
+    public ResponseEntity<ProductPage> getProductPage(@RequestParam(defaultValue = "id") String sort,
+                                                      @RequestParam(required = false) String pageToken,
+                                                      @RequestParam(defaultValue = "50") int limit,
+                                                      @RequestParam(required = false) String fields) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        ProductSortKey sortKey;
+        try {
+            sortKey = ProductSortKey.valueOf(sort.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported sort '" + sort + "'", e);
+        }
+        return ResponseEntity.ok(productService.getProductPage(sortKey, pageToken, limit, ProductFields.parse(fields)));
+    }
+
+    // GET products by category, inclusive price range and/or dynamic attributes (attr.<name>=<value>),
+    // ordered by price
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam(required = false) String category,
+                                                        @RequestParam(required = false) Double minPrice,
+                                                        @RequestParam(required = false) Double maxPrice,
+                                                        @RequestParam(defaultValue = "asc") String order,
+                                                        @RequestParam(defaultValue = "50") int limit,
+                                                        @RequestParam(required = false) String fields,
+                                                        @RequestParam Map<String, String> parameters) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Sort.Direction direction = Sort.Direction.fromString(order);
+        Map<String, String> attributes = new LinkedHashMap<>();
+        parameters.forEach((name, value) -> {
+            if (name.startsWith(ATTRIBUTE_PARAMETER_PREFIX)) {
+                attributes.put(name.substring(ATTRIBUTE_PARAMETER_PREFIX.length()), value);
+            }
+        });
+        ProductSearch search = new ProductSearch(category, minPrice, maxPrice, attributes, direction, limit);
+        return ResponseEntity.ok(productService.searchProducts(search, ProductFields.parse(fields)));
+    }
+
+    // GET how often each dynamic attribute has been filtered on, and whether it is indexed
+    @GetMapping("/attributes/usage")
+    public ResponseEntity<List<AttributeUsage>> getAttributeUsage() {
+        return ResponseEntity.ok(attributeUsageTracker.getUsage());
+    }
+
+    // GET the attributes that are filtered on often enough to deserve an index
+    @GetMapping("/attributes/recommendations")
+    public ResponseEntity<List<String>> getAttributeIndexRecommendations() {
+        return ResponseEntity.ok(attributeUsageTracker.getRecommendations());
+    }
+
+    // POST create the recommended attribute indexes now
+    @PostMapping("/attributes/indexes")
+    public ResponseEntity<List<String>> createAttributeIndexes() {
+        return ResponseEntity.status(HttpStatus.CREATED).body(attributeUsageTracker.createRecommendedIndexes());
+    }
+
+    // GET product count, price range and average, and attribute keys of every category
+    @GetMapping("/stats")
+    public ResponseEntity<List<CategoryStats>> getCategoryStats() {
+        return ResponseEntity.ok(productService.getCategoryStats());
+    }
+
+    @GetMapping("/stats/{category}")
+    public ResponseEntity<CategoryStats> getCategoryStats(@PathVariable String category) {
+        return productService.getCategoryStats(category)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // POST recompute the category stats from all products, repairing any drift
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildCategoryStats() {
+        return ResponseEntity.ok(Map.of("categories", productService.rebuildCategoryStats()));
+    }
+
+    // GET hit/miss/eviction counters of the product-by-id cache
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Long>> getCacheStatistics() {
+        return ResponseEntity.ok(productService.getCacheStatistics());
+    }
+
+    // POST write every product to a snapshot file in products.snapshot.dir
+    @PostMapping("/snapshots/{name}/export")
+    public ResponseEntity<SnapshotResult> exportSnapshot(@PathVariable String name) throws IOException {
+        return ResponseEntity.ok(productSnapshotService.exportSnapshot(productSnapshotService.resolve(name)));
+    }
+
+    // POST load the products of a snapshot file; existing products are kept unless replace=true
+    @PostMapping("/snapshots/{name}/import")
+    public ResponseEntity<SnapshotResult> importSnapshot(@PathVariable String name,
+                                                         @RequestParam(defaultValue = "false") boolean replace) throws IOException {
+        Path file = productSnapshotService.resolve(name);
+        if (!Files.isRegularFile(file)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(productSnapshotService.importSnapshot(file, replace));
     }
 
+    // GET a product, with its ETag; 304 without a body when If-None-Match matches
     @GetMapping("/{productId}")
-    public ResponseEntity<Product> getProductById(@PathVariable String productId) {
-        Optional<Product> optionalProduct = productService.getProductById(productId);
+    public ResponseEntity<Product> getProductById(@PathVariable String productId,
+                                                  @RequestParam(required = false) String fields) {
+        ProductFields selected = ProductFields.parse(fields);
+        Optional<Product> optionalProduct = productService.getProductById(productId, selected);
         if (optionalProduct.isPresent()) {
             Product product = optionalProduct.get();
-            return ResponseEntity.ok(product);
+            return ResponseEntity.ok().eTag(ProductETags.of(product, selected)).body(product);
         } else {
             return ResponseEntity.notFound().build();
         }
     }
 
+    // POST a JSON array of ids; returns one item per distinct id in request order, marked FOUND with
+    // the product or NOT_FOUND
+    @PostMapping("/by-ids")
+    public ResponseEntity<List<MultiGetItem>> getProductsByIds(@RequestBody List<String> ids,
+                                                               @RequestParam(required = false) String fields) {
+        if (ids.size() > MAX_MULTI_GET_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_MULTI_GET_IDS + " ids can be requested at once");
+        }
+        return ResponseEntity.ok(productService.getProductsByIds(ids, ProductFields.parse(fields)));
+    }
 
-
+    // With "Prefer: respond-async" and write-behind enabled, the product is queued and the response is
+    // 202 with a tracking id; otherwise (or when the queue spills) it is written before responding 201
     @PostMapping("/")
-    public ResponseEntity<?> addProduct(@Valid @RequestBody Product product)  {
+    public ResponseEntity<?> addProduct(@Valid @RequestBody Product product,
+                                        @RequestHeader(value = PREFER_HEADER, required = false) String prefer)  {
+        if (productWriteBehindService.isEnabled() && prefersAsync(prefer)) {
+            Optional<WriteBehindStatus> status = productWriteBehindService.offer(product);
+            if (status.isPresent()) {
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/products/write-behind/" + status.get().getTrackingId()))
+                        .header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC)
+                        .body(status.get());
+            }
+        }
 
         productService.addProduct(product);
 
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
-    // PUT update an existing product
+    // GET whether a product accepted with "Prefer: respond-async" has been written yet
+    @GetMapping("/write-behind/{trackingId}")
+    public ResponseEntity<WriteBehindStatus> getWriteBehindStatus(@PathVariable String trackingId) {
+        return productWriteBehindService.getStatus(trackingId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // POST many products at once as a JSON array or NDJSON stream. Products are upserted by _id
+    // (new ids are generated when missing) and the response reports the outcome of every item.
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkWriteResult> bulkUpsertProducts(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(productBulkService.upsertAll(request.getInputStream()));
+    }
+
+    // PUT update an existing product. With If-Match, only while the product still has one of the
+    // given ETags (412 otherwise); the response carries the new ETag.
     @PutMapping("/{productId}")
     public ResponseEntity<Product> updateProduct(@PathVariable String productId,
-                                                 @Valid @RequestBody Product updatedProduct) {
-        Optional<Product> product = productService.updateProduct(productId, updatedProduct);
+                                                 @Valid @RequestBody Product updatedProduct,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        Optional<Product> product = ifMatch == null
+                ? productService.updateProduct(productId, updatedProduct)
+                : Optional.of(productService.updateProduct(productId, updatedProduct, ifMatch));
+        return product.map(saved -> ResponseEntity.ok().eTag(ProductETags.of(saved, ProductFields.ALL)).body(saved))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // PATCH only the given fields of an existing product; fields set to null are removed
+    @PatchMapping("/{productId}")
+    public ResponseEntity<Product> patchProduct(@PathVariable String productId,
+                                                @RequestBody Map<String, Object> changes) {
+        Optional<Product> product = productService.patchProduct(productId, changes);
         return product.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // DELETE a product
+    // DELETE a product; with If-Match, only while it still has one of the given ETags (412 otherwise)
     @DeleteMapping("/{productId}")
-    public ResponseEntity<Void> deleteProduct(@PathVariable String productId) {
-        productService.deleteProduct(productId);
+    public ResponseEntity<Void> deleteProduct(@PathVariable String productId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        if (ifMatch == null) {
+            productService.deleteProduct(productId);
+        } else {
+            productService.deleteProduct(productId, ifMatch);
+        }
         return ResponseEntity.noContent().build();
     }
 
+    // Prefer holds comma-separated preferences, e.g. "respond-async, wait=10"
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().equalsIgnoreCase(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @RestControllerAdvice
     public static class GlobalExceptionHandler {
 
@@ -85,6 +358,47 @@ public class ProductController {
 
             return ResponseEntity.badRequest().body(errors);
         }
+
+        // @Valid failures of the reactive controller, reported like MethodArgumentNotValidException
+        @ExceptionHandler(WebExchangeBindException.class)
+        @ResponseStatus(HttpStatus.BAD_REQUEST)
+        public ResponseEntity<Map<String, String>> handleWebExchangeBindException(WebExchangeBindException ex) {
+            Map<String, String> errors = new HashMap<>();
+            for (FieldError fieldError : ex.getFieldErrors()) {
+                errors.put(fieldError.getField(), fieldError.getDefaultMessage());
+            }
+            return ResponseEntity.badRequest().body(errors);
+        }
+
+        @ExceptionHandler(ProductValidationException.class)
+        @ResponseStatus(HttpStatus.BAD_REQUEST)
+        public ResponseEntity<Map<String, String>> handleProductValidationException(ProductValidationException ex) {
+            return ResponseEntity.badRequest().body(ex.getErrors());
+        }
+
+        @ExceptionHandler(IllegalArgumentException.class)
+        @ResponseStatus(HttpStatus.BAD_REQUEST)
+        public ResponseEntity<Map<String, String>> handleIllegalArgumentException(IllegalArgumentException ex) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put("error", ex.getMessage());
+            return ResponseEntity.badRequest().body(errors);
+        }
+
+        @ExceptionHandler(PreconditionFailedException.class)
+        @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+        public ResponseEntity<Map<String, String>> handlePreconditionFailedException(PreconditionFailedException ex) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(Map.of("error", ex.getMessage()));
+        }
+
+        // The database or the write-behind queue is saturated, or a read of the same product is taking
+        // too long; clients should back off briefly and retry
+        @ExceptionHandler({BulkheadFullException.class, QueryTimeoutException.class, WriteBehindQueueFullException.class})
+        @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+        public ResponseEntity<Map<String, String>> handleBulkheadFullException(RuntimeException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", ex.getMessage()));
+        }
     }
 
 }
@@ -0,0 +1,197 @@
+package com.ecom.prodmanager.controller;
+
+import com.ecom.prodmanager.model.AttributeUsage;
+import com.ecom.prodmanager.model.CategoryStats;
+import com.ecom.prodmanager.model.MultiGetItem;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductPage;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.ecom.prodmanager.service.AttributeUsageTracker;
+import com.ecom.prodmanager.service.ReactiveProductService;
+import com.ecom.prodmanager.util.ProductETags;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebFlux version of ProductController for the reactive profile, with the same paths, parameters,
+ * status codes and error bodies (see ProductController.GlobalExceptionHandler). The bulk, cache and
+ * snapshot endpoints are only served by the servlet stack.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/api/products")
+public class ReactiveProductController {
+
+    private final ReactiveProductService productService;
+    private final AttributeUsageTracker attributeUsageTracker;
+
+    public ReactiveProductController(ReactiveProductService productService, AttributeUsageTracker attributeUsageTracker) {
+        this.productService = productService;
+        this.attributeUsageTracker = attributeUsageTracker;
+    }
+
+    // GET all products as a JSON array, written as products arrive from the cursor. Tagged with the
+    // catalog version like the servlet endpoint; on a matching If-None-Match the products are not read.
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<Product>>> getAllProducts(@RequestParam(required = false) String fields,
+                                                              ServerWebExchange exchange) {
+        ProductFields selected = ProductFields.parse(fields);
+        return productService.getCatalogVersion().map(version -> {
+            String etag = ProductETags.ofCatalog(version, selected);
+            if (exchange.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag).body(productService.getAllProducts(selected));
+        });
+    }
+
+    // GET all products as newline-delimited JSON; cursor batches are requested as the client keeps up
+    @GetMapping(value = "/all", produces = ProductController.APPLICATION_NDJSON_VALUE)
+    public Flux<Product> streamAllProducts(@RequestParam(required = false) String fields) {
+        return productService.getAllProducts(ProductFields.parse(fields));
+    }
+
+    @GetMapping("/page")
+    public Mono<ProductPage> getProductPage(@RequestParam(defaultValue = "id") String sort,
+                                            @RequestParam(required = false) String pageToken,
+                                            @RequestParam(defaultValue = "50") int limit,
+                                            @RequestParam(required = false) String fields) {
+        checkLimit(limit);
+        ProductSortKey sortKey;
+        try {
+            sortKey = ProductSortKey.valueOf(sort.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported sort '" + sort + "'", e);
+        }
+        return productService.getProductPage(sortKey, pageToken, limit, ProductFields.parse(fields));
+    }
+
+    @GetMapping("/search")
+    public Flux<Product> searchProducts(@RequestParam(required = false) String category,
+                                       @RequestParam(required = false) Double minPrice,
+                                       @RequestParam(required = false) Double maxPrice,
+                                       @RequestParam(defaultValue = "asc") String order,
+                                       @RequestParam(defaultValue = "50") int limit,
+                                       @RequestParam(required = false) String fields,
+                                       @RequestParam Map<String, String> parameters) {
+        checkLimit(limit);
+        Sort.Direction direction = Sort.Direction.fromString(order);
+        Map<String, String> attributes = new LinkedHashMap<>();
+        parameters.forEach((name, value) -> {
+            if (name.startsWith(ProductController.ATTRIBUTE_PARAMETER_PREFIX)) {
+                attributes.put(name.substring(ProductController.ATTRIBUTE_PARAMETER_PREFIX.length()), value);
+            }
+        });
+        return productService.searchProducts(new ProductSearch(category, minPrice, maxPrice, attributes, direction, limit),
+                ProductFields.parse(fields));
+    }
+
+    @GetMapping("/attributes/usage")
+    public List<AttributeUsage> getAttributeUsage() {
+        return attributeUsageTracker.getUsage();
+    }
+
+    @GetMapping("/attributes/recommendations")
+    public List<String> getAttributeIndexRecommendations() {
+        return attributeUsageTracker.getRecommendations();
+    }
+
+    // Index creation blocks, so it runs on the bounded elastic scheduler
+    @PostMapping("/attributes/indexes")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<List<String>> createAttributeIndexes() {
+        return Mono.fromCallable(attributeUsageTracker::createRecommendedIndexes).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("/stats")
+    public Mono<List<CategoryStats>> getCategoryStats() {
+        return productService.getCategoryStats();
+    }
+
+    @GetMapping("/stats/{category}")
+    public Mono<ResponseEntity<CategoryStats>> getCategoryStats(@PathVariable String category) {
+        return productService.getCategoryStats(category)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/stats/rebuild")
+    public Mono<Map<String, Integer>> rebuildCategoryStats() {
+        return productService.rebuildCategoryStats().map(categories -> Map.of("categories", categories));
+    }
+
+    @GetMapping("/{productId}")
+    public Mono<ResponseEntity<Product>> getProductById(@PathVariable String productId,
+                                                        @RequestParam(required = false) String fields) {
+        return Mono.fromCallable(() -> ProductFields.parse(fields))
+                .flatMap(selected -> productService.getProductById(productId, selected)
+                        .map(product -> ResponseEntity.ok().eTag(ProductETags.of(product, selected)).body(product)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/by-ids")
+    public Mono<List<MultiGetItem>> getProductsByIds(@RequestBody List<String> ids,
+                                                     @RequestParam(required = false) String fields) {
+        if (ids.size() > ProductController.MAX_MULTI_GET_IDS) {
+            throw new IllegalArgumentException("At most " + ProductController.MAX_MULTI_GET_IDS + " ids can be requested at once");
+        }
+        return Mono.fromCallable(() -> ProductFields.parse(fields))
+                .flatMap(selected -> productService.getProductsByIds(ids, selected));
+    }
+
+    @PostMapping("/")
+    public Mono<ResponseEntity<Void>> addProduct(@Valid @RequestBody Product product) {
+        return productService.addProduct(product).thenReturn(ResponseEntity.status(HttpStatus.CREATED).build());
+    }
+
+    @PutMapping("/{productId}")
+    public Mono<ResponseEntity<Product>> updateProduct(@PathVariable String productId,
+                                                       @Valid @RequestBody Product updatedProduct,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        Mono<Product> updated = ifMatch == null
+                ? productService.updateProduct(productId, updatedProduct)
+                : productService.updateProduct(productId, updatedProduct, ifMatch);
+        return updated
+                .map(product -> ResponseEntity.ok().eTag(ProductETags.of(product, ProductFields.ALL)).body(product))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping("/{productId}")
+    public Mono<ResponseEntity<Product>> patchProduct(@PathVariable String productId,
+                                                      @RequestBody Map<String, Object> changes) {
+        return productService.patchProduct(productId, changes)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{productId}")
+    public Mono<ResponseEntity<Void>> deleteProduct(@PathVariable String productId,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
+        Mono<Void> deleted = ifMatch == null
+                ? productService.deleteProduct(productId)
+                : productService.deleteProduct(productId, ifMatch);
+        return deleted.thenReturn(ResponseEntity.noContent().build());
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > ProductController.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + ProductController.MAX_PAGE_SIZE);
+        }
+    }
+}
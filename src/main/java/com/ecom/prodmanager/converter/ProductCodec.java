@@ -0,0 +1,161 @@
+package com.ecom.prodmanager.converter;
+
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductVersions;
+import com.ecom.prodmanager.util.StringInterner;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.BsonTypeClassMap;
+import org.bson.codecs.BsonTypeCodecMap;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+
+import java.util.Map;
+
+/**
+ * Reads and writes products directly between BSON and the Product fields, without building an
+ * intermediate Document. Stored documents have exactly the shape written by
+ * {@link ProductConverter.ProductToDocumentConverter}: the fixed fields (_version only when set)
+ * followed by the dynamic ones.
+ */
+public class ProductCodec implements CollectibleCodec<Product> {
+    private final CodecRegistry registry;
+    private final BsonTypeCodecMap bsonTypeCodecMap;
+
+    public ProductCodec(CodecRegistry registry) {
+        this.registry = registry;
+        this.bsonTypeCodecMap = new BsonTypeCodecMap(new BsonTypeClassMap(), registry);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Product product, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeName("_id");
+        if (product.get_id() == null) {
+            writer.writeNull();
+        } else {
+            writer.writeObjectId(product.get_id());
+        }
+        if (product.getVersion() != null) {
+            writer.writeInt64(ProductVersions.FIELD, product.getVersion());
+        }
+        writeString(writer, "name", product.getName());
+        writeString(writer, "description", product.getDescription());
+        writeString(writer, "category", product.getCategory());
+        writer.writeName("price");
+        if (product.getPrice() == null) {
+            writer.writeNull();
+        } else {
+            writer.writeDouble(product.getPrice());
+        }
+        for (Map.Entry<String, Object> field : product.getAdditionalFields().entrySet()) {
+            writer.writeName(field.getKey());
+            writeValue(writer, field.getValue(), encoderContext);
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Product decode(BsonReader reader, DecoderContext decoderContext) {
+        Product product = new Product();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                if (!isFixedField(name)) {
+                    product.addField(StringInterner.intern(name), null);
+                }
+                continue;
+            }
+            switch (name) {
+                case "_id" -> product.set_id(reader.readObjectId());
+                case ProductVersions.FIELD -> product.setVersion(reader.readInt64());
+                case "name" -> product.setName(reader.readString());
+                case "description" -> product.setDescription(reader.readString());
+                case "category" -> product.setCategory(StringInterner.intern(reader.readString()));
+                case "price" -> product.setPrice(reader.readDouble());
+                // Dynamic field names repeat across products, so they share canonical instances
+                default -> product.addField(StringInterner.intern(name), readValue(reader, decoderContext));
+            }
+        }
+        reader.readEndDocument();
+        return product;
+    }
+
+    @Override
+    public Class<Product> getEncoderClass() {
+        return Product.class;
+    }
+
+    @Override
+    public Product generateIdIfAbsentFromDocument(Product product) {
+        if (product.get_id() == null) {
+            product.set_id(new ObjectId());
+        }
+        return product;
+    }
+
+    @Override
+    public boolean documentHasId(Product product) {
+        return product.get_id() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Product product) {
+        if (product.get_id() == null) {
+            throw new IllegalStateException("The product does not contain an _id");
+        }
+        return new BsonObjectId(product.get_id());
+    }
+
+    private static boolean isFixedField(String name) {
+        return switch (name) {
+            case "_id", ProductVersions.FIELD, "name", "description", "category", "price" -> true;
+            default -> false;
+        };
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        writer.writeName(name);
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeString(value);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void writeValue(BsonWriter writer, Object value, EncoderContext encoderContext) {
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            encoderContext.encodeWithChildContext((Encoder) registry.get(value.getClass()), writer, value);
+        }
+    }
+
+    // Dynamic values decode to the same types a Document would hold (Document, List, ...)
+    private Object readValue(BsonReader reader, DecoderContext decoderContext) {
+        return bsonTypeCodecMap.get(reader.getCurrentBsonType()).decode(reader, decoderContext);
+    }
+
+    public static class Provider implements CodecProvider {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+            if (clazz == Product.class) {
+                return (Codec<T>) new ProductCodec(registry);
+            }
+            return null;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.ecom.prodmanager.converter;
 
 import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductVersions;
+import com.ecom.prodmanager.util.StringInterner;
 import org.bson.Document;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.convert.ReadingConverter;
@@ -17,6 +19,9 @@ public class ProductConverter {
         public Document convert(Product product) {
             Document document = new Document();
             document.put("_id", product.get_id());
+            if (product.getVersion() != null) {
+                document.put(ProductVersions.FIELD, product.getVersion());
+            }
             document.put("name", product.getName());
             document.put("description", product.getDescription());
             document.put("category", product.getCategory());
@@ -33,13 +38,14 @@ public class ProductConverter {
         public Product convert(Document document) {
             Product product = new Product();
             product.set_id(document.getObjectId("_id"));
+            product.setVersion(document.getLong(ProductVersions.FIELD));
             product.setName(document.getString("name"));
             product.setDescription(document.getString("description"));
-            product.setCategory(document.getString("category"));
+            product.setCategory(StringInterner.intern(document.getString("category")));
             product.setPrice(document.getDouble("price"));
             document.forEach((key, value) -> {
-                if (!"_id".equals(key) && !"name".equals(key) && !"description".equals(key) && !"category".equals(key) && !"price".equals(key)) {
-                    product.addField(key, value);
+                if (!"_id".equals(key) && !ProductVersions.FIELD.equals(key) && !"name".equals(key) && !"description".equals(key) && !"category".equals(key) && !"price".equals(key)) {
+                    product.addField(StringInterner.intern(key), value);
                 }
             });
             return product;
@@ -0,0 +1,63 @@
+package com.ecom.prodmanager.events;
+
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductChangeEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Records product change events in the outbox collection, next to the product write itself.
+ * ProductEventRelay publishes them to Kafka later, so the request path never waits on the broker.
+ * Nothing is recorded unless products.events.enabled is set, so the outbox cannot grow without a relay.
+ * Events are only atomic with their write when products.outbox.transactional is set (see
+ * ProductEventsConfig); by default an event can be lost if the process fails right after the write.
+ */
+@Component
+public class ProductEventOutbox {
+    public static final String COLLECTION = "product_outbox";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public ProductEventOutbox(MongoTemplate mongoTemplate, ObjectMapper objectMapper,
+                              @Value("${products.events.enabled:false}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    public void recordUpserted(Product product) {
+        if (enabled) {
+            mongoTemplate.insert(upserted(product), COLLECTION);
+        }
+    }
+
+    public void recordUpserted(Collection<Product> products) {
+        if (enabled && !products.isEmpty()) {
+            List<ProductChangeEvent> events = products.stream().map(this::upserted).toList();
+            mongoTemplate.insert(events, COLLECTION);
+        }
+    }
+
+    public void recordDeleted(String productId) {
+        if (enabled) {
+            mongoTemplate.insert(new ProductChangeEvent(productId.toLowerCase(), ProductChangeEvent.Type.DELETED, null), COLLECTION);
+        }
+    }
+
+    private ProductChangeEvent upserted(Product product) {
+        try {
+            return new ProductChangeEvent(product.get_id().toHexString(), ProductChangeEvent.Type.UPSERTED,
+                    objectMapper.writeValueAsString(product));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize product " + product.get_id(), e);
+        }
+    }
+}
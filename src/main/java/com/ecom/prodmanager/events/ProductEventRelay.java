@@ -0,0 +1,118 @@
+package com.ecom.prodmanager.events;
+
+import com.ecom.prodmanager.model.ProductChangeEvent;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the outbox into Kafka in batches, oldest event first, keyed by product id so that all
+ * events of one product land on the same partition in order. Events are removed from the outbox
+ * only once the broker acknowledged them, so delivery is at-least-once. When an event fails, the
+ * later events of the same product stay in the outbox too, even if they were acknowledged, and are
+ * published again after it; the last event a consumer sees for a product is always its latest one.
+ */
+@Component
+public class ProductEventRelay {
+    private static final Logger log = LoggerFactory.getLogger(ProductEventRelay.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String topic;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final boolean enabled;
+
+    public ProductEventRelay(MongoTemplate mongoTemplate,
+                             @Qualifier("productEventKafkaTemplate") KafkaTemplate<String, String> kafkaTemplate,
+                             @Value("${products.events.topic:product-events}") String topic,
+                             @Value("${products.events.relay-batch-size:500}") int batchSize,
+                             @Value("${products.events.send-timeout:PT30S}") Duration sendTimeout,
+                             @Value("${products.events.enabled:false}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.enabled = enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${products.events.relay-interval:PT0.2S}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Keep draining while full batches come back, so a backlog is not limited by the interval
+            while (relayBatch() == batchSize) {
+                log.debug("Outbox still has pending events, relaying the next batch");
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not read the product outbox", e);
+        }
+    }
+
+    // Publishes one batch. Returns its size if every event was published, and 0 otherwise
+    // so that relay() waits for the next interval before retrying. Events of other products are
+    // removed once published even when some failed, so one product cannot hold up the others.
+    public int relayBatch() {
+        Query oldestFirst = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        List<ProductChangeEvent> events = mongoTemplate.find(oldestFirst, ProductChangeEvent.class, ProductEventOutbox.COLLECTION);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(events.size());
+        for (ProductChangeEvent event : events) {
+            ProducerRecord<String, String> record = new ProducerRecord<>(topic, event.getProductId(), event.getPayload());
+            record.headers().add("event-type", event.getType().name().getBytes(StandardCharsets.UTF_8));
+            sends.add(kafkaTemplate.send(record));
+        }
+        kafkaTemplate.flush();
+
+        List<Object> published = new ArrayList<>(events.size());
+        // Products with a failed event in this batch; their later events are kept to be sent again after it
+        Set<String> failedProducts = new HashSet<>();
+        for (int i = 0; i < events.size(); i++) {
+            ProductChangeEvent event = events.get(i);
+            try {
+                sends.get(i).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (!failedProducts.contains(event.getProductId())) {
+                    published.add(event.getId());
+                }
+            } catch (ExecutionException | TimeoutException e) {
+                failedProducts.add(event.getProductId());
+                log.warn("Could not publish event for product {}, it and its later events stay in the outbox", event.getProductId(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (!published.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(published)), ProductEventOutbox.COLLECTION);
+        }
+        return published.size() == events.size() ? events.size() : 0;
+    }
+}
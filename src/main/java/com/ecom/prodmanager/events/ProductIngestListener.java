@@ -0,0 +1,148 @@
+package com.ecom.prodmanager.events;
+
+import com.ecom.prodmanager.model.BulkItemResult;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.service.ProductBulkService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Consumes supplier product records in poll-sized batches. Each batch is validated, coalesced to the
+ * last record per product id and written with one unordered bulk upsert. Records that cannot be parsed,
+ * fail validation or are rejected by Mongo go to the dead-letter topic. The listener only returns (and
+ * the offsets are only committed) once the bulk write and the dead-letter sends have succeeded.
+ */
+@Component
+@ConditionalOnProperty(name = "products.ingest.enabled", havingValue = "true")
+public class ProductIngestListener {
+    private static final Logger log = LoggerFactory.getLogger(ProductIngestListener.class);
+
+    private final ProductBulkService productBulkService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectReader productReader;
+    private final String deadLetterTopic;
+    private final Timer writeTimer;
+    private final Counter writtenCounter;
+    private final Counter coalescedCounter;
+    private final Counter deadLetteredCounter;
+
+    public ProductIngestListener(ProductBulkService productBulkService,
+                                 @Qualifier("productEventKafkaTemplate") KafkaTemplate<String, String> kafkaTemplate,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${products.ingest.dead-letter-topic:product-ingest.DLT}") String deadLetterTopic) {
+        this.productBulkService = productBulkService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.deadLetterTopic = deadLetterTopic;
+        this.writeTimer = Timer.builder("products.ingest.batch.write")
+                .description("Latency of the bulk write of one ingest batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("products.ingest.records", "outcome", "written");
+        this.coalescedCounter = meterRegistry.counter("products.ingest.records", "outcome", "coalesced");
+        this.deadLetteredCounter = meterRegistry.counter("products.ingest.records", "outcome", "dead_lettered");
+    }
+
+    @KafkaListener(id = "productIngest",
+            topics = "${products.ingest.topic:product-ingest}",
+            groupId = "${products.ingest.group-id:prodmanager-ingest}",
+            containerFactory = "productIngestListenerContainerFactory")
+    public void ingest(List<ConsumerRecord<String, String>> records) {
+        List<CompletableFuture<SendResult<String, String>>> deadLetters = new ArrayList<>();
+        // Records arrive in offset order, so the last record for an id is the newest one
+        Map<ObjectId, Product> latest = new LinkedHashMap<>();
+        Map<ObjectId, ConsumerRecord<String, String>> sources = new LinkedHashMap<>();
+
+        for (ConsumerRecord<String, String> record : records) {
+            Product product;
+            try {
+                product = record.value() == null ? null : productReader.readValue(record.value());
+            } catch (JsonProcessingException e) {
+                deadLetters.add(deadLetter(record, "Malformed product: " + e.getOriginalMessage()));
+                continue;
+            }
+            if (product == null) {
+                deadLetters.add(deadLetter(record, "Empty record"));
+                continue;
+            }
+            Map<String, String> errors = productBulkService.validate(product);
+            if (!errors.isEmpty()) {
+                deadLetters.add(deadLetter(record, "Invalid product: " + errors));
+                continue;
+            }
+            if (product.get_id() == null) {
+                product.set_id(record.key() != null && ObjectId.isValid(record.key()) ? new ObjectId(record.key()) : new ObjectId());
+            }
+            if (latest.put(product.get_id(), product) != null) {
+                coalescedCounter.increment();
+            }
+            sources.put(product.get_id(), record);
+        }
+
+        if (!latest.isEmpty()) {
+            List<Product> batch = new ArrayList<>(latest.values());
+            List<BulkItemResult> results = writeTimer.record(() -> productBulkService.upsertBatch(batch));
+            for (BulkItemResult result : results) {
+                if (result.getStatus() == BulkItemResult.Status.UPSERTED) {
+                    writtenCounter.increment();
+                } else {
+                    ConsumerRecord<String, String> source = sources.get(batch.get(result.getIndex()).get_id());
+                    deadLetters.add(deadLetter(source, "Write failed: " + result.getErrors()));
+                }
+            }
+        }
+
+        awaitDeadLetters(deadLetters);
+    }
+
+    // Counted once the dead-letter topic has the record; a failed send is retried with the batch
+    private CompletableFuture<SendResult<String, String>> deadLetter(ConsumerRecord<String, String> record, String reason) {
+        log.warn("Dead-lettering record {}-{}@{}: {}", record.topic(), record.partition(), record.offset(), reason);
+        ProducerRecord<String, String> deadLetter = new ProducerRecord<>(deadLetterTopic, record.key(), record.value());
+        deadLetter.headers().add("dlt-reason", reason.getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add("dlt-original-topic", record.topic().getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add("dlt-original-partition", String.valueOf(record.partition()).getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add("dlt-original-offset", String.valueOf(record.offset()).getBytes(StandardCharsets.UTF_8));
+        return kafkaTemplate.send(deadLetter).thenApply(result -> {
+            deadLetteredCounter.increment();
+            return result;
+        });
+    }
+
+    // A failed dead-letter send fails the batch, so it is redelivered instead of its offsets being committed
+    private static void awaitDeadLetters(List<CompletableFuture<SendResult<String, String>>> deadLetters) {
+        try {
+            CompletableFuture.allOf(deadLetters.toArray(CompletableFuture[]::new)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not publish to the dead-letter topic", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing to the dead-letter topic", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ecom.prodmanager.model;
+
+public class AttributeUsage {
+    private final String attribute;
+    private final long filterCount;
+    private final boolean indexed;
+
+    public AttributeUsage(String attribute, long filterCount, boolean indexed) {
+        this.attribute = attribute;
+        this.filterCount = filterCount;
+        this.indexed = indexed;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    // Number of searches that filtered on the attribute since startup
+    public long getFilterCount() {
+        return filterCount;
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+}
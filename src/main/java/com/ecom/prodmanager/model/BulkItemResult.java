@@ -0,0 +1,51 @@
+package com.ecom.prodmanager.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+    public enum Status { UPSERTED, INVALID, FAILED }
+
+    private final int index;
+    private final String id;
+    private final Status status;
+    private final Map<String, String> errors;
+
+    public BulkItemResult(int index, String id, Status status, Map<String, String> errors) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.errors = errors;
+    }
+
+    public static BulkItemResult upserted(int index, String id) {
+        return new BulkItemResult(index, id, Status.UPSERTED, null);
+    }
+
+    public static BulkItemResult invalid(int index, String id, Map<String, String> errors) {
+        return new BulkItemResult(index, id, Status.INVALID, errors);
+    }
+
+    public static BulkItemResult failed(int index, String id, String message) {
+        return new BulkItemResult(index, id, Status.FAILED, Map.of("error", message));
+    }
+
+    // Position of the product in the request body
+    public int getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
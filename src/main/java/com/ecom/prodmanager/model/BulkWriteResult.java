@@ -0,0 +1,27 @@
+package com.ecom.prodmanager.model;
+
+import java.util.List;
+
+public class BulkWriteResult {
+    private final int upserted;
+    private final int rejected;
+    private final List<BulkItemResult> items;
+
+    public BulkWriteResult(List<BulkItemResult> items) {
+        this.items = items;
+        this.upserted = (int) items.stream().filter(item -> item.getStatus() == BulkItemResult.Status.UPSERTED).count();
+        this.rejected = items.size() - upserted;
+    }
+
+    public int getUpserted() {
+        return upserted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<BulkItemResult> getItems() {
+        return items;
+    }
+}
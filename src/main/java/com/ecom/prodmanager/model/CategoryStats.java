@@ -0,0 +1,46 @@
+package com.ecom.prodmanager.model;
+
+import java.util.List;
+
+public class CategoryStats {
+    private final String category;
+    private final long count;
+    private final Double minPrice;
+    private final Double maxPrice;
+    private final Double averagePrice;
+    private final List<String> attributes;
+
+    public CategoryStats(String category, long count, Double minPrice, Double maxPrice, Double averagePrice, List<String> attributes) {
+        this.category = category;
+        this.count = count;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.averagePrice = averagePrice;
+        this.attributes = attributes;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public Double getAveragePrice() {
+        return averagePrice;
+    }
+
+    // Dynamic attribute keys held by at least one product of the category, sorted by name
+    public List<String> getAttributes() {
+        return attributes;
+    }
+}
@@ -0,0 +1,217 @@
+package com.ecom.prodmanager.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Map behind Product's dynamic fields. Most products have no or only a few dynamic fields, so
+ * entries are kept in one array of alternating keys and values (allocated on the first put) and
+ * looked up by a linear scan, in insertion order. Beyond MAX_INLINE_ENTRIES it switches to a HashMap.
+ */
+final class DynamicFields extends AbstractMap<String, Object> {
+    static final int MAX_INLINE_ENTRIES = 16;
+    private static final int INITIAL_ENTRIES = 2;
+
+    // keys at even, values at odd indexes; null until the first put and after spilling
+    private Object[] entries;
+    private int size;
+    // used instead of entries once the map has grown past MAX_INLINE_ENTRIES
+    private HashMap<String, Object> spilled;
+
+    @Override
+    public int size() {
+        return spilled != null ? spilled.size() : size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return spilled != null ? spilled.containsKey(key) : indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (spilled != null) {
+            return spilled.get(key);
+        }
+        int index = indexOf(key);
+        return index < 0 ? null : entries[index + 1];
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (spilled != null) {
+            return spilled.put(key, value);
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            Object previous = entries[index + 1];
+            entries[index + 1] = value;
+            return previous;
+        }
+        if (size == MAX_INLINE_ENTRIES) {
+            spill().put(key, value);
+            return null;
+        }
+        if (entries == null) {
+            entries = new Object[INITIAL_ENTRIES * 2];
+        } else if (size * 2 == entries.length) {
+            entries = Arrays.copyOf(entries, Math.min(entries.length * 2, MAX_INLINE_ENTRIES * 2));
+        }
+        entries[size * 2] = key;
+        entries[size * 2 + 1] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (spilled != null) {
+            return spilled.remove(key);
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Object previous = entries[index + 1];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        entries = null;
+        size = 0;
+        spilled = null;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        if (spilled != null) {
+            spilled.forEach(action);
+            return;
+        }
+        for (int i = 0; i < size * 2; i += 2) {
+            action.accept((String) entries[i], entries[i + 1]);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return spilled != null ? spilled.entrySet() : new InlineEntrySet();
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size * 2; i += 2) {
+            if (Objects.equals(entries[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int last = (size - 1) * 2;
+        System.arraycopy(entries, index + 2, entries, index, last - index);
+        entries[last] = null;
+        entries[last + 1] = null;
+        size--;
+    }
+
+    private HashMap<String, Object> spill() {
+        spilled = new HashMap<>();
+        for (int i = 0; i < size * 2; i += 2) {
+            spilled.put((String) entries[i], entries[i + 1]);
+        }
+        entries = null;
+        size = 0;
+        return spilled;
+    }
+
+    private final class InlineEntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new Iterator<>() {
+                private int next;
+                private int current = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size * 2;
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    current = next;
+                    next += 2;
+                    return new InlineEntry(current);
+                }
+
+                @Override
+                public void remove() {
+                    if (current < 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeAt(current);
+                    next = current;
+                    current = -1;
+                }
+            };
+        }
+    }
+
+    private final class InlineEntry implements Entry<String, Object> {
+        private final int index;
+
+        InlineEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return (String) entries[index];
+        }
+
+        @Override
+        public Object getValue() {
+            return entries[index + 1];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = entries[index + 1];
+            entries[index + 1] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry<?, ?> entry && Objects.equals(getKey(), entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
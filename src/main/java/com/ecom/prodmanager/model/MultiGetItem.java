@@ -0,0 +1,38 @@
+package com.ecom.prodmanager.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MultiGetItem {
+    public enum Status { FOUND, NOT_FOUND }
+
+    private final String id;
+    private final Status status;
+    private final Product product;
+
+    public MultiGetItem(String id, Status status, Product product) {
+        this.id = id;
+        this.status = status;
+        this.product = product;
+    }
+
+    public static MultiGetItem found(String id, Product product) {
+        return new MultiGetItem(id, Status.FOUND, product);
+    }
+
+    public static MultiGetItem notFound(String id) {
+        return new MultiGetItem(id, Status.NOT_FOUND, null);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+}
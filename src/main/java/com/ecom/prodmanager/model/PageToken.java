@@ -0,0 +1,68 @@
+package com.ecom.prodmanager.model;
+
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination. It carries the sort key and the position
+ * (sort value plus _id) of the last product on the previous page. A null sort value (a product
+ * without a price or category) is encoded by leaving the value out, so it stays distinct from "".
+ */
+public class PageToken {
+    private static final String SEPARATOR = "|";
+
+    private final ProductSortKey sortKey;
+    private final ObjectId lastId;
+    // null when the last product had no value for the sort field
+    private final String lastValue;
+
+    public PageToken(ProductSortKey sortKey, ObjectId lastId, String lastValue) {
+        this.sortKey = sortKey;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    public static PageToken after(ProductSortKey sortKey, Product product) {
+        Object value = sortKey.valueOf(product);
+        return new PageToken(sortKey, product.get_id(), value == null ? null : value.toString());
+    }
+
+    public ProductSortKey getSortKey() {
+        return sortKey;
+    }
+
+    public ObjectId getLastId() {
+        return lastId;
+    }
+
+    public String getLastValue() {
+        return lastValue;
+    }
+
+    public Double getLastPrice() {
+        return lastValue == null ? null : Double.valueOf(lastValue);
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + lastId.toHexString() + (lastValue == null ? "" : SEPARATOR + lastValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageToken decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The value goes last so that it may itself contain the separator; it is missing for null
+            String[] parts = raw.split("\\|", 3);
+            PageToken pageToken = new PageToken(ProductSortKey.valueOf(parts[0]), new ObjectId(parts[1]),
+                    parts.length == 3 ? parts[2] : null);
+            if (pageToken.sortKey == ProductSortKey.PRICE) {
+                pageToken.getLastPrice();
+            }
+            return pageToken;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+}
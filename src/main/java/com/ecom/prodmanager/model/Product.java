@@ -1,9 +1,10 @@
 package com.ecom.prodmanager.model;
 
+import com.ecom.prodmanager.util.JsonUtil;
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.*;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -11,15 +12,24 @@ import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Document(collection = "products")
 public class Product {
+    // Array-backed for the usual handful of dynamic fields, see DynamicFields
     @Field("fields")
-    private Map<String, Object> fields;
+    private final Map<String, Object> fields = new DynamicFields();
 
     private ObjectId _id;
+
+    // Renewed on every write, see ProductVersions; not part of the JSON body, clients see it in the ETag
+    @Field(ProductVersions.FIELD)
+    private Long version;
+
     @NotEmpty(message = "Name is required")
     private String name;
 
@@ -34,7 +44,6 @@ public class Product {
     private Double price;
 
     public Product() {
-        this.fields = new HashMap<>();
     }
 
     public Product(String id, String name, String description, String category, double price) {
@@ -43,7 +52,6 @@ public class Product {
         this.description = description;
         this.category = category;
         this.price = price;
-        this.fields = new HashMap<>();
     }
 
 
@@ -55,6 +63,17 @@ public class Product {
         this._id = id;
     }
 
+    // null for products written before versions were introduced
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
 
 
     public String getName() {
@@ -107,11 +126,47 @@ public class Product {
         return fields;
     }
 
+    // Deep copy: nested documents, arrays and dates of dynamic fields are copied too, the remaining
+    // values (strings, numbers, ObjectIds) are immutable
+    public Product copy() {
+        Product copy = new Product();
+        copy._id = _id;
+        copy.version = version;
+        copy.name = name;
+        copy.description = description;
+        copy.category = category;
+        copy.price = price;
+        fields.forEach((key, value) -> copy.fields.put(key, copyValue(value)));
+        return copy;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof org.bson.Document document) {
+            org.bson.Document copy = new org.bson.Document();
+            document.forEach((key, nested) -> copy.put(key, copyValue(nested)));
+            return copy;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(map.size());
+            map.forEach((key, nested) -> copy.put(key, copyValue(nested)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(nested -> copy.add(copyValue(nested)));
+            return copy;
+        }
+        if (value instanceof Date date) {
+            return new Date(date.getTime());
+        }
+        return value;
+    }
+
 
     @Override
     public String toString() {
         try {
-            return new ObjectMapper().writeValueAsString(this);
+            return JsonUtil.toJson(this);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,69 @@
+package com.ecom.prodmanager.model;
+
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+
+// A product mutation waiting in the outbox to be published; the payload is the product's JSON
+public class ProductChangeEvent {
+    public enum Type { UPSERTED, DELETED }
+
+    private ObjectId id;
+    private String productId;
+    private Type type;
+    private String payload;
+    private Instant createdAt;
+
+    public ProductChangeEvent() {
+    }
+
+    public ProductChangeEvent(String productId, Type type, String payload) {
+        this.id = new ObjectId();
+        this.productId = productId;
+        this.type = type;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+
+    // Generated when the event is recorded, so ordering by id follows the order of the writes
+    public ObjectId getId() {
+        return id;
+    }
+
+    public void setId(ObjectId id) {
+        this.id = id;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    // Null for deletions
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
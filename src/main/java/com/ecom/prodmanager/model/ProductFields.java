@@ -0,0 +1,124 @@
+package com.ecom.prodmanager.model;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Sparse fieldset requested with ?fields=name,price. Only the listed fixed or dynamic fields, plus
+ * _id, are read from Mongo and written to the response; the version is read too, for the ETag.
+ * {@link #ALL} selects every field.
+ */
+public final class ProductFields {
+    public static final ProductFields ALL = new ProductFields(null);
+
+    private static final int MAX_FIELDS = 50;
+
+    // null for ALL
+    private final Set<String> names;
+
+    private ProductFields(Set<String> names) {
+        this.names = names;
+    }
+
+    public static ProductFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || name.startsWith("$") || name.contains(".")) {
+                throw new IllegalArgumentException("Invalid field '" + name + "'");
+            }
+            names.add(name);
+        }
+        if (names.size() > MAX_FIELDS) {
+            throw new IllegalArgumentException("At most " + MAX_FIELDS + " fields can be selected");
+        }
+        return new ProductFields(Collections.unmodifiableSet(names));
+    }
+
+    public boolean isAll() {
+        return names == null;
+    }
+
+    public Set<String> getNames() {
+        return names == null ? Set.of() : names;
+    }
+
+    // Adds a field the server needs itself, such as the sort field a page token is built from
+    public ProductFields including(String field) {
+        if (names == null || names.contains(field)) {
+            return this;
+        }
+        Set<String> extended = new LinkedHashSet<>(names);
+        extended.add(field);
+        return new ProductFields(Collections.unmodifiableSet(extended));
+    }
+
+    // Projection for the driver's find(); null means no projection
+    public Document toProjection() {
+        if (names == null) {
+            return null;
+        }
+        Document projection = new Document(ProductVersions.FIELD, 1);
+        names.forEach(name -> projection.append(name, 1));
+        return projection;
+    }
+
+    public Query applyTo(Query query) {
+        if (names != null) {
+            query.fields().include(ProductVersions.FIELD);
+            names.forEach(name -> query.fields().include(name));
+        }
+        return query;
+    }
+
+    // Same result as reading the product with toProjection(), for products already in memory
+    public Product project(Product product) {
+        if (names == null) {
+            return product;
+        }
+        Product projected = new Product();
+        projected.set_id(product.get_id());
+        projected.setVersion(product.getVersion());
+        if (names.contains("name")) {
+            projected.setName(product.getName());
+        }
+        if (names.contains("description")) {
+            projected.setDescription(product.getDescription());
+        }
+        if (names.contains("category")) {
+            projected.setCategory(product.getCategory());
+        }
+        if (names.contains("price")) {
+            projected.setPrice(product.getPrice());
+        }
+        product.getAdditionalFields().forEach((name, value) -> {
+            if (names.contains(name)) {
+                projected.addField(name, value);
+            }
+        });
+        return projected;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ProductFields other && Objects.equals(names, other.names);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(names);
+    }
+
+    @Override
+    public String toString() {
+        return names == null ? "*" : String.join(",", names);
+    }
+}
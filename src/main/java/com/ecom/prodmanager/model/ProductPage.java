@@ -0,0 +1,22 @@
+package com.ecom.prodmanager.model;
+
+import java.util.List;
+
+public class ProductPage {
+    private final List<Product> products;
+    private final String nextPageToken;
+
+    public ProductPage(List<Product> products, String nextPageToken) {
+        this.products = products;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    // Null once the last page has been reached
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+}
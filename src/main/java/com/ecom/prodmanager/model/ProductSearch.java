@@ -0,0 +1,98 @@
+package com.ecom.prodmanager.model;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Category, price-range and dynamic attribute filter for product searches. Results are always ordered
+ * by price so that the category_price index (or an attribute_price index) serves both filter and sort.
+ */
+public class ProductSearch {
+    private final String category;
+    private final Double minPrice;
+    private final Double maxPrice;
+    private final Map<String, String> attributes;
+    private final Sort.Direction direction;
+    private final int limit;
+
+    public ProductSearch(String category, Double minPrice, Double maxPrice, Sort.Direction direction, int limit) {
+        this(category, minPrice, maxPrice, Collections.emptyMap(), direction, limit);
+    }
+
+    public ProductSearch(String category, Double minPrice, Double maxPrice, Map<String, String> attributes,
+                         Sort.Direction direction, int limit) {
+        this.category = category;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.attributes = attributes;
+        this.direction = direction;
+        this.limit = limit;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    // Equality filters on dynamic fields, keyed by field name
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // Price bounds are inclusive
+    public Query toQuery() {
+        Query query = new Query();
+        if (category != null) {
+            query.addCriteria(Criteria.where("category").is(category));
+        }
+        if (minPrice != null || maxPrice != null) {
+            Criteria price = Criteria.where("price");
+            if (minPrice != null) {
+                price.gte(minPrice);
+            }
+            if (maxPrice != null) {
+                price.lte(maxPrice);
+            }
+            query.addCriteria(price);
+        }
+        attributes.forEach((name, value) -> query.addCriteria(Criteria.where(name).in(candidateValues(value))));
+        return query.with(Sort.by(direction, "price")).limit(limit);
+    }
+
+    // Query string values are untyped, so also match the number or boolean the value spells
+    private static List<Object> candidateValues(String value) {
+        List<Object> candidates = new ArrayList<>(2);
+        candidates.add(value);
+        if ("true".equals(value) || "false".equals(value)) {
+            candidates.add(Boolean.valueOf(value));
+        } else {
+            try {
+                candidates.add(Double.valueOf(value));
+            } catch (NumberFormatException e) {
+                // Not a number, match the string only
+            }
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ecom.prodmanager.model;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+public enum ProductSortKey {
+    ID("_id"),
+    PRICE("price"),
+    CATEGORY("category");
+
+    private final String field;
+
+    ProductSortKey(String field) {
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    // Every sort is made unique by falling back to _id, which is what keeps keyset pages stable
+    public Sort toSort() {
+        if (this == ID) {
+            return Sort.by(Sort.Direction.ASC, "_id");
+        }
+        return Sort.by(Sort.Direction.ASC, field).and(Sort.by(Sort.Direction.ASC, "_id"));
+    }
+
+    // Keyset pagination: a page starts right after the (sort value, _id) of the previous page's last
+    // product, so no documents are skipped server-side. after is null for the first page.
+    public Query pageQuery(PageToken after, int limit) {
+        Query query = new Query();
+        if (after != null) {
+            query.addCriteria(switch (this) {
+                case ID -> Criteria.where("_id").gt(after.getLastId());
+                case PRICE -> after(after.getLastPrice(), after.getLastId());
+                case CATEGORY -> after(after.getLastValue(), after.getLastId());
+            });
+        }
+        return query.with(toSort()).limit(limit);
+    }
+
+    // Mongo sorts null and missing values before any other value, so after a null every product with
+    // a value follows, and only nulls with a greater _id are still left among the nulls
+    private Criteria after(Object lastValue, ObjectId lastId) {
+        if (lastValue == null) {
+            return new Criteria().orOperator(
+                    Criteria.where(field).ne(null),
+                    Criteria.where(field).is(null).and("_id").gt(lastId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(field).gt(lastValue),
+                Criteria.where(field).is(lastValue).and("_id").gt(lastId));
+    }
+
+    public Object valueOf(Product product) {
+        return switch (this) {
+            case ID -> product.get_id().toHexString();
+            case PRICE -> product.getPrice();
+            case CATEGORY -> product.getCategory();
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecom.prodmanager.model;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Versions of stored products, kept in the _version field and renewed by every write: product
+ * writes, bulk and write-behind upserts, ingest, snapshot import and the reactive API. A version
+ * is a random positive long rather than a counter, so replacing a product does not need its previous
+ * version first; two writes of one product never share a version in practice. Products written
+ * before versions were introduced have none, which counts as version 0 until their next write.
+ */
+public final class ProductVersions {
+    public static final String FIELD = "_version";
+
+    private ProductVersions() {
+    }
+
+    public static long next() {
+        return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    }
+
+    public static long of(Product product) {
+        return product.getVersion() == null ? 0 : product.getVersion();
+    }
+}
@@ -0,0 +1,51 @@
+package com.ecom.prodmanager.model;
+
+// Outcome of a snapshot export or import. skipped counts products an import left alone because
+// a product with the same id already existed.
+public class SnapshotResult {
+    private final String file;
+    private final long products;
+    private final long skipped;
+    private final long bytes;
+    private final String checksum;
+    private final long durationMillis;
+
+    public SnapshotResult(String file, long products, long skipped, long bytes, String checksum, long durationMillis) {
+        this.file = file;
+        this.products = products;
+        this.skipped = skipped;
+        this.bytes = bytes;
+        this.checksum = checksum;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public long getProducts() {
+        return products;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotResult{file='" + file + "', products=" + products + ", skipped=" + skipped
+                + ", bytes=" + bytes + ", checksum=" + checksum + ", durationMillis=" + durationMillis + '}';
+    }
+}
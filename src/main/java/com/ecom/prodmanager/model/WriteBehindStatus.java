@@ -0,0 +1,49 @@
+package com.ecom.prodmanager.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Where a product accepted by the write-behind queue is, looked up by its tracking id
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WriteBehindStatus {
+    public enum State { QUEUED, WRITTEN, FAILED }
+
+    private final String trackingId;
+    private final String productId;
+    private final State state;
+    private final String error;
+
+    public WriteBehindStatus(String trackingId, String productId, State state, String error) {
+        this.trackingId = trackingId;
+        this.productId = productId;
+        this.state = state;
+        this.error = error;
+    }
+
+    public static WriteBehindStatus queued(String trackingId, String productId) {
+        return new WriteBehindStatus(trackingId, productId, State.QUEUED, null);
+    }
+
+    public WriteBehindStatus written() {
+        return new WriteBehindStatus(trackingId, productId, State.WRITTEN, null);
+    }
+
+    public WriteBehindStatus failed(String error) {
+        return new WriteBehindStatus(trackingId, productId, State.FAILED, error);
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
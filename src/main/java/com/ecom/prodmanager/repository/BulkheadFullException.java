@@ -0,0 +1,14 @@
+package com.ecom.prodmanager.repository;
+
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.time.Duration;
+
+// Thrown when no Mongo permit became available within the bulkhead's wait budget. A data access
+// failure like any other outage, so background writers retry it, and transient as a later call may
+// well get a permit.
+public class BulkheadFullException extends TransientDataAccessResourceException {
+    public BulkheadFullException(Duration maxWait) {
+        super("No database capacity available within " + maxWait.toMillis() + " ms");
+    }
+}
@@ -0,0 +1,72 @@
+package com.ecom.prodmanager.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits concurrent Mongo calls to the size of the connection pool, so bursts queue here, in arrival
+ * order, instead of inside the driver. Guards both ProductRepository calls and every call on the
+ * MongoTemplate bean, which the services, bulk writes, the outbox and the stats use directly. A call
+ * made while the thread already holds a permit (a repository method using the template) does not take
+ * a second one. A call that cannot get a permit within max-wait fails fast with BulkheadFullException
+ * (503). For streaming methods the permit covers opening the cursor, not reading it; collections
+ * taken from the template (getCollection) are only guarded when used inside a repository call.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "products.bulkhead.enabled", havingValue = "true")
+public class ProductRepositoryBulkhead {
+    private final Semaphore permits;
+    private final Duration maxWait;
+    private final Timer queueTimer;
+    private final Counter rejectedCounter;
+    private final ThreadLocal<Boolean> holdsPermit = ThreadLocal.withInitial(() -> false);
+
+    // The default matches the driver's default maxPoolSize; keep both in sync when changing either
+    public ProductRepositoryBulkhead(MeterRegistry meterRegistry,
+                                     @Value("${products.bulkhead.permits:100}") int permits,
+                                     @Value("${products.bulkhead.max-wait:PT0.1S}") Duration maxWait) {
+        this.permits = new Semaphore(permits, true);
+        this.maxWait = maxWait;
+        this.queueTimer = Timer.builder("products.bulkhead.queue")
+                .description("Time spent waiting for a Mongo permit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = meterRegistry.counter("products.bulkhead.rejected");
+        Gauge.builder("products.bulkhead.available", this.permits, Semaphore::availablePermits).register(meterRegistry);
+    }
+
+    @Around("this(com.ecom.prodmanager.repository.ProductRepository) "
+            + "|| target(org.springframework.data.mongodb.core.MongoOperations)")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (holdsPermit.get()) {
+            return joinPoint.proceed();
+        }
+        long start = System.nanoTime();
+        boolean acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        queueTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejectedCounter.increment();
+            throw new BulkheadFullException(maxWait);
+        }
+        holdsPermit.set(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            holdsPermit.remove();
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ecom.prodmanager.repository;
+
+import com.ecom.prodmanager.model.PageToken;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Reads decoded straight from BSON by ProductCodec instead of going through Document.
+// The ProductFields variants only fetch the selected fields from Mongo.
+public interface ProductRepositoryCustom {
+
+    List<Product> findAll();
+
+    List<Product> findAll(ProductFields fields);
+
+    Optional<Product> findById(String id, ProductFields fields);
+
+    // One $in query; products that do not exist are simply missing from the result, which is unordered
+    List<Product> findByIds(Collection<ObjectId> ids, ProductFields fields);
+
+    // Cursor-backed stream over the whole collection; only one batch is held in memory at a time
+    Stream<Product> streamAllBy(ProductFields fields);
+
+    // See ProductSortKey.pageQuery; after is null for the first page
+    List<Product> findPage(ProductSortKey sortKey, PageToken after, int limit, ProductFields fields);
+
+    List<Product> search(ProductSearch search, ProductFields fields);
+
+    // The explain output of the exact query search() runs, used to check which index it picks
+    Document explainSearch(ProductSearch search);
+
+    // Likewise for findPage
+    Document explainPage(ProductSortKey sortKey, PageToken after, int limit);
+}
@@ -0,0 +1,98 @@
+package com.ecom.prodmanager.repository;
+
+import com.ecom.prodmanager.model.PageToken;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    private static final int CURSOR_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public ProductRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return findAll(ProductFields.ALL);
+    }
+
+    @Override
+    public List<Product> findAll(ProductFields fields) {
+        return collection().find().projection(fields.toProjection()).batchSize(CURSOR_BATCH_SIZE).into(new ArrayList<>());
+    }
+
+    @Override
+    public Optional<Product> findById(String id, ProductFields fields) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(collection().find(new Document("_id", new ObjectId(id))).projection(fields.toProjection()).first());
+    }
+
+    @Override
+    public List<Product> findByIds(Collection<ObjectId> ids, ProductFields fields) {
+        return collection().find(new Document("_id", new Document("$in", ids)))
+                .projection(fields.toProjection())
+                .batchSize(CURSOR_BATCH_SIZE)
+                .into(new ArrayList<>(ids.size()));
+    }
+
+    @Override
+    public Stream<Product> streamAllBy(ProductFields fields) {
+        MongoCursor<Product> cursor = collection().find().projection(fields.toProjection()).batchSize(CURSOR_BATCH_SIZE).cursor();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    @Override
+    public List<Product> findPage(ProductSortKey sortKey, PageToken after, int limit, ProductFields fields) {
+        return find(fields.applyTo(sortKey.pageQuery(after, limit))).into(new ArrayList<>());
+    }
+
+    @Override
+    public List<Product> search(ProductSearch search, ProductFields fields) {
+        return find(fields.applyTo(search.toQuery())).into(new ArrayList<>());
+    }
+
+    @Override
+    public Document explainSearch(ProductSearch search) {
+        return find(search.toQuery()).explain();
+    }
+
+    @Override
+    public Document explainPage(ProductSortKey sortKey, PageToken after, int limit) {
+        return find(sortKey.pageQuery(after, limit)).explain();
+    }
+
+    private FindIterable<Product> find(Query query) {
+        return collection().find(query.getQueryObject())
+                .projection(query.getFieldsObject().isEmpty() ? null : query.getFieldsObject())
+                .sort(query.getSortObject())
+                .limit(query.getLimit());
+    }
+
+    // Uses the client's codec registry, which MongoConfiguration extends with ProductCodec
+    private MongoCollection<Product> collection() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class)).withDocumentClass(Product.class);
+    }
+}
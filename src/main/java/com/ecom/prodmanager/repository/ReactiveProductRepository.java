@@ -0,0 +1,9 @@
+package com.ecom.prodmanager.repository;
+
+import com.ecom.prodmanager.model.Product;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+// Non-blocking counterpart of ProductRepository, used by the reactive profile. Pages and searches
+// go through ReactiveMongoTemplate with the same queries (ProductSortKey.pageQuery, ProductSearch.toQuery).
+public interface ReactiveProductRepository extends ReactiveMongoRepository<Product, String> {
+}
@@ -0,0 +1,130 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.AttributeUsage;
+import com.ecom.prodmanager.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each dynamic attribute is filtered on and recommends (or, when
+ * products.attributes.auto-index is set, creates) an attribute+price index for the hot ones.
+ */
+@Component
+public class AttributeUsageTracker {
+    private static final Logger log = LoggerFactory.getLogger(AttributeUsageTracker.class);
+    private static final String INDEX_PREFIX = "attr_";
+
+    private final Map<String, LongAdder> filterCounts = new ConcurrentHashMap<>();
+    private final Set<String> indexedAttributes = ConcurrentHashMap.newKeySet();
+    private final MongoTemplate mongoTemplate;
+    private final long indexThreshold;
+    private final int maxIndexes;
+    private final int maxTrackedAttributes;
+    private final boolean autoIndex;
+
+    public AttributeUsageTracker(MongoTemplate mongoTemplate,
+                                 @Value("${products.attributes.index-threshold:1000}") long indexThreshold,
+                                 @Value("${products.attributes.max-indexes:10}") int maxIndexes,
+                                 @Value("${products.attributes.max-tracked:1000}") int maxTrackedAttributes,
+                                 @Value("${products.attributes.auto-index:false}") boolean autoIndex) {
+        this.mongoTemplate = mongoTemplate;
+        this.indexThreshold = indexThreshold;
+        this.maxIndexes = maxIndexes;
+        this.maxTrackedAttributes = maxTrackedAttributes;
+        this.autoIndex = autoIndex;
+    }
+
+    public void record(Collection<String> attributes) {
+        for (String attribute : attributes) {
+            LongAdder count = filterCounts.get(attribute);
+            // Attribute names come from clients, so the number of tracked names is capped
+            if (count == null && filterCounts.size() < maxTrackedAttributes) {
+                count = filterCounts.computeIfAbsent(attribute, key -> new LongAdder());
+            }
+            if (count != null) {
+                count.increment();
+            }
+        }
+    }
+
+    public List<AttributeUsage> getUsage() {
+        List<AttributeUsage> usage = new ArrayList<>();
+        filterCounts.forEach((attribute, count) -> usage.add(new AttributeUsage(attribute, count.sum(), indexedAttributes.contains(attribute))));
+        usage.sort(Comparator.comparingLong(AttributeUsage::getFilterCount).reversed());
+        return usage;
+    }
+
+    // Unindexed attributes filtered on at least index-threshold times, hottest first,
+    // limited so that attribute indexes never exceed max-indexes
+    public List<String> getRecommendations() {
+        int available = maxIndexes - indexedAttributes.size();
+        return getUsage().stream()
+                .filter(usage -> !usage.isIndexed() && usage.getFilterCount() >= indexThreshold)
+                .limit(Math.max(available, 0))
+                .map(AttributeUsage::getAttribute)
+                .toList();
+    }
+
+    public List<String> createRecommendedIndexes() {
+        IndexOperations indexOperations = mongoTemplate.indexOps(Product.class);
+        List<String> created = new ArrayList<>();
+        for (String attribute : getRecommendations()) {
+            Index index = new Index().on(attribute, Sort.Direction.ASC).on("price", Sort.Direction.ASC).named(INDEX_PREFIX + attribute + "_price");
+            created.add(indexOperations.ensureIndex(index));
+            indexedAttributes.add(attribute);
+            log.info("Created index for frequently filtered attribute {}", attribute);
+        }
+        return created;
+    }
+
+    // Syncs with the attribute indexes that exist, e.g. created before a restart, by another
+    // instance or by hand, and forgets dropped ones
+    public void refreshIndexedAttributes() {
+        Set<String> existing = new HashSet<>();
+        for (IndexInfo index : mongoTemplate.indexOps(Product.class).getIndexInfo()) {
+            if (index.getName().startsWith(INDEX_PREFIX)) {
+                index.getIndexFields().stream()
+                        .map(IndexField::getKey)
+                        .filter(key -> !"price".equals(key))
+                        .forEach(existing::add);
+            }
+        }
+        indexedAttributes.addAll(existing);
+        indexedAttributes.retainAll(existing);
+    }
+
+    // Runs on startup (after index-check-initial-delay) and then every index-check-interval. The indexed
+    // attributes are refreshed whether or not auto-index is set, as usage and recommendations report them.
+    @Scheduled(fixedDelayString = "${products.attributes.index-check-interval:PT5M}",
+            initialDelayString = "${products.attributes.index-check-initial-delay:PT0S}")
+    public void applyRecommendations() {
+        try {
+            refreshIndexedAttributes();
+            if (autoIndex) {
+                createRecommendedIndexes();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not check attribute indexes", e);
+        }
+    }
+}
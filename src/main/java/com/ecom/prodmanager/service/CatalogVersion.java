@@ -0,0 +1,35 @@
+package com.ecom.prodmanager.service;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Version of the products collection as a whole, incremented after every write of products, so the
+ * list of all products can be revalidated with one small read (see ProductETags). It is incremented
+ * after the write and read before the products, so a response is never tagged with a version newer
+ * than its content; a write whose increment is still outstanding is picked up by the next request.
+ */
+@Component
+public class CatalogVersion {
+    static final String COLLECTION = "catalog_version";
+    private static final String ID = "products";
+
+    private final MongoTemplate mongoTemplate;
+
+    public CatalogVersion(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public long get() {
+        Document document = mongoTemplate.findById(ID, Document.class, COLLECTION);
+        return document == null ? 0 : document.getLong("version");
+    }
+
+    public void increment() {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(ID)), new Update().inc("version", 1L), COLLECTION);
+    }
+}
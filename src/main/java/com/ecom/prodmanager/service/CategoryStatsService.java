@@ -0,0 +1,352 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.CategoryStats;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.repository.ProductRepository;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Product count, price range and average, and dynamic attribute keys per category, materialized in
+ * the category_stats collection (one document per category) so reading them does not depend on the
+ * catalog size. Writes apply the difference between a product's old and new version with $inc, $min
+ * and $max. The min or max price is re-read through the category_price index only when a product
+ * holding it leaves the category or changes price.
+ *
+ * Outside a transaction, concurrent writes to the same category can leave the stats slightly off;
+ * rebuild() recomputes them from the products. It also runs on startup while there are no stats
+ * yet, so a new deployment or one upgraded from a version without stats starts with complete ones.
+ * Changes recorded by this instance while a rebuild runs are applied again to the rebuilt stats
+ * before they replace the live ones; changes recorded by other instances in that time are lost
+ * until the next rebuild.
+ */
+@Component
+public class CategoryStatsService {
+    private static final Logger log = LoggerFactory.getLogger(CategoryStatsService.class);
+
+    static final String COLLECTION = "category_stats";
+    // rebuild() writes here and then renames it over COLLECTION
+    static final String REBUILD_COLLECTION = COLLECTION + "_rebuild";
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductRepository productRepository;
+    private final boolean rebuildOnStartup;
+    // Changes hold the read lock while they are applied, the swap of a rebuild holds the write lock
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // Changes recorded since the running rebuild started, null when none is running; changes are
+    // added concurrently under the read lock
+    private Queue<Map<String, Delta>> changesDuringRebuild;
+
+    public CategoryStatsService(MongoTemplate mongoTemplate, ProductRepository productRepository,
+                                @Value("${products.stats.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.mongoTemplate = mongoTemplate;
+        this.productRepository = productRepository;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (rebuildOnStartup) {
+            try {
+                rebuildIfMissing();
+            } catch (DataAccessException e) {
+                log.warn("Could not check category stats, they may be empty until the next rebuild", e);
+            }
+        }
+    }
+
+    // Rebuilds when there are products but no stats, returning whether it did
+    public boolean rebuildIfMissing() {
+        if (mongoTemplate.exists(new Query(), COLLECTION) || !mongoTemplate.exists(new Query(), Product.class)) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    public List<CategoryStats> getStats() {
+        Query query = new Query().with(Sort.by("_id"));
+        return mongoTemplate.find(query, Document.class, COLLECTION).stream().map(CategoryStatsService::toStats).toList();
+    }
+
+    public Optional<CategoryStats> getStats(String category) {
+        return Optional.ofNullable(mongoTemplate.findById(category, Document.class, COLLECTION)).map(CategoryStatsService::toStats);
+    }
+
+    // before is null for new products, after is null for deleted ones
+    public void record(Product before, Product after) {
+        Map<String, Delta> deltas = new HashMap<>();
+        addChange(deltas, before, after);
+        applyLive(deltas);
+    }
+
+    // Products replaced in one bulk write, with their previous versions by id where they existed
+    public void recordAll(Map<ObjectId, Product> before, Collection<Product> after) {
+        Map<String, Delta> deltas = new HashMap<>();
+        for (Product product : after) {
+            addChange(deltas, before.get(product.get_id()), product);
+        }
+        applyLive(deltas);
+    }
+
+    // Recomputes every category from the products and replaces the stored stats. The new stats are
+    // written to a separate collection and renamed into place, so readers see either the old or the
+    // new stats but never a partly written set. Changes recorded meanwhile are applied to the new
+    // stats first, with changes held off until the rename is done. A write in flight as the rebuild
+    // starts may already be in the products read, and is then counted twice until the next rebuild.
+    public synchronized int rebuild() {
+        withSwapLock(() -> changesDuringRebuild = new ConcurrentLinkedQueue<>());
+        try {
+            Map<String, Delta> totals = new HashMap<>();
+            try (Stream<Product> products = productRepository.streamAllBy(ProductFields.ALL)) {
+                products.forEach(product -> addChange(totals, null, product));
+            }
+            List<Document> documents = new ArrayList<>(totals.size());
+            totals.forEach((category, total) -> {
+                if (total.count > 0) {
+                    documents.add(total.toDocument(category));
+                }
+            });
+            // Left over when a previous rebuild failed before the rename
+            mongoTemplate.dropCollection(REBUILD_COLLECTION);
+            MongoCollection<Document> rebuilt = mongoTemplate.createCollection(REBUILD_COLLECTION);
+            if (!documents.isEmpty()) {
+                mongoTemplate.insert(documents, REBUILD_COLLECTION);
+            }
+            withSwapLock(() -> {
+                changesDuringRebuild.forEach(deltas -> apply(deltas, REBUILD_COLLECTION));
+                rebuilt.renameCollection(new MongoNamespace(mongoTemplate.getDb().getName(), COLLECTION),
+                        new RenameCollectionOptions().dropTarget(true));
+            });
+            log.info("Rebuilt category stats for {} categories", documents.size());
+            return documents.size();
+        } finally {
+            withSwapLock(() -> changesDuringRebuild = null);
+        }
+    }
+
+    private void withSwapLock(Runnable action) {
+        swapLock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(cron = "${products.stats.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            log.warn("Could not rebuild category stats", e);
+        }
+    }
+
+    private static void addChange(Map<String, Delta> deltas, Product before, Product after) {
+        // A price that stays in the same category cancels out and must not trigger a min/max re-read
+        boolean priceChanged = before == null || after == null
+                || !Objects.equals(before.getCategory(), after.getCategory())
+                || !Objects.equals(before.getPrice(), after.getPrice());
+        if (before != null && before.getCategory() != null) {
+            deltas.computeIfAbsent(before.getCategory(), category -> new Delta()).add(before, -1, priceChanged);
+        }
+        if (after != null && after.getCategory() != null) {
+            deltas.computeIfAbsent(after.getCategory(), category -> new Delta()).add(after, 1, priceChanged);
+        }
+    }
+
+    private void applyLive(Map<String, Delta> deltas) {
+        swapLock.readLock().lock();
+        try {
+            apply(deltas, COLLECTION);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(deltas);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void apply(Map<String, Delta> deltas, String collection) {
+        deltas.forEach((category, delta) -> {
+            Update update = delta.toUpdate();
+            Query query = Query.query(Criteria.where("_id").is(category));
+            Document stats = update.getUpdateObject().isEmpty()
+                    ? mongoTemplate.findOne(query, Document.class, collection)
+                    : mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, collection);
+            if (stats != null && delta.removed) {
+                cleanUp(category, stats, delta, collection);
+            }
+        });
+    }
+
+    // Drops emptied categories and attribute keys, and re-reads a min or max price that was removed
+    private void cleanUp(String category, Document stats, Delta delta, String collection) {
+        Query query = Query.query(Criteria.where("_id").is(category));
+        if (number(stats, "count") <= 0) {
+            mongoTemplate.remove(query, collection);
+            return;
+        }
+        Update update = new Update();
+        Document attributes = stats.get("attributes", Document.class);
+        if (attributes != null) {
+            attributes.forEach((key, count) -> {
+                if (((Number) count).longValue() <= 0) {
+                    update.unset("attributes." + key);
+                }
+            });
+        }
+        Double minPrice = stats.getDouble("minPrice");
+        Double maxPrice = stats.getDouble("maxPrice");
+        if (delta.removedMin != null && (minPrice == null || delta.removedMin <= minPrice)) {
+            setOrUnset(update, "minPrice", extremePrice(category, Sort.Direction.ASC));
+        }
+        if (delta.removedMax != null && (maxPrice == null || delta.removedMax >= maxPrice)) {
+            setOrUnset(update, "maxPrice", extremePrice(category, Sort.Direction.DESC));
+        }
+        if (!update.getUpdateObject().isEmpty()) {
+            mongoTemplate.updateFirst(query, update, collection);
+        }
+    }
+
+    private Double extremePrice(String category, Sort.Direction direction) {
+        Query query = Query.query(Criteria.where("category").is(category).and("price").ne(null))
+                .with(Sort.by(direction, "price"))
+                .limit(1);
+        query.fields().include("price");
+        Product product = mongoTemplate.findOne(query, Product.class);
+        return product == null ? null : product.getPrice();
+    }
+
+    private static void setOrUnset(Update update, String field, Object value) {
+        if (value == null) {
+            update.unset(field);
+        } else {
+            update.set(field, value);
+        }
+    }
+
+    private static CategoryStats toStats(Document document) {
+        long priceCount = number(document, "priceCount");
+        Double average = priceCount > 0 ? ((Number) document.get("priceSum")).doubleValue() / priceCount : null;
+        List<String> attributes = new ArrayList<>();
+        Document attributeCounts = document.get("attributes", Document.class);
+        if (attributeCounts != null) {
+            attributeCounts.forEach((key, count) -> {
+                if (((Number) count).longValue() > 0) {
+                    attributes.add(key);
+                }
+            });
+            attributes.sort(null);
+        }
+        return new CategoryStats(document.getString("_id"), number(document, "count"),
+                document.getDouble("minPrice"), document.getDouble("maxPrice"), average, attributes);
+    }
+
+    private static long number(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    // Change of one category's stats; sign is 1 for a product entering the category, -1 for one leaving it
+    private static final class Delta {
+        long count;
+        long priceCount;
+        double priceSum;
+        Double addedMin;
+        Double addedMax;
+        Double removedMin;
+        Double removedMax;
+        boolean removed;
+        final Map<String, Long> attributes = new HashMap<>();
+
+        void add(Product product, int sign, boolean includePrice) {
+            count += sign;
+            removed |= sign < 0;
+            for (String key : product.getAdditionalFields().keySet()) {
+                // Such names cannot be used as a path below "attributes"
+                if (!key.startsWith("$") && !key.contains(".")) {
+                    attributes.merge(key, (long) sign, Long::sum);
+                }
+            }
+            Double price = product.getPrice();
+            if (includePrice && price != null) {
+                priceCount += sign;
+                priceSum += sign * price;
+                if (sign > 0) {
+                    addedMin = addedMin == null ? price : Math.min(addedMin, price);
+                    addedMax = addedMax == null ? price : Math.max(addedMax, price);
+                } else {
+                    removedMin = removedMin == null ? price : Math.min(removedMin, price);
+                    removedMax = removedMax == null ? price : Math.max(removedMax, price);
+                }
+            }
+        }
+
+        Update toUpdate() {
+            Update update = new Update();
+            if (count != 0) {
+                update.inc("count", count);
+            }
+            if (priceCount != 0 || priceSum != 0) {
+                update.inc("priceCount", priceCount).inc("priceSum", priceSum);
+            }
+            attributes.forEach((key, change) -> {
+                if (change != 0) {
+                    update.inc("attributes." + key, change);
+                }
+            });
+            if (addedMin != null) {
+                update.min("minPrice", addedMin).max("maxPrice", addedMax);
+            }
+            return update;
+        }
+
+        // Totals of a rebuild, where every product was added
+        Document toDocument(String category) {
+            Document attributeCounts = new Document();
+            attributes.forEach(attributeCounts::append);
+            Document document = new Document("_id", category)
+                    .append("count", count)
+                    .append("priceCount", priceCount)
+                    .append("priceSum", priceSum)
+                    .append("attributes", attributeCounts);
+            if (addedMin != null) {
+                document.append("minPrice", addedMin).append("maxPrice", addedMax);
+            }
+            return document;
+        }
+    }
+}
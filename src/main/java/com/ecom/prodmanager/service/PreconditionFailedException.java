@@ -0,0 +1,8 @@
+package com.ecom.prodmanager.service;
+
+// Thrown when an If-Match header does not match the current ETag of the product, or there is no such product
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String id) {
+        super("Product " + id + " does not match If-Match");
+    }
+}
@@ -0,0 +1,210 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.events.ProductEventOutbox;
+import com.ecom.prodmanager.model.BulkItemResult;
+import com.ecom.prodmanager.model.BulkWriteResult;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductVersions;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Upserts products in unordered bulk writes. Products are read from the request one at a time
+ * and written whenever a batch fills up, so only one batch is held in memory.
+ */
+@Timed(value = "products.service", histogram = true)
+@Service
+public class ProductBulkService {
+    private final MongoTemplate mongoTemplate;
+    private final Validator validator;
+    private final ProductCache productCache;
+    private final ProductEventOutbox productEventOutbox;
+    private final CategoryStatsService categoryStatsService;
+    private final CatalogVersion catalogVersion;
+    private final ObjectReader productReader;
+    private final int batchSize;
+
+    public ProductBulkService(MongoTemplate mongoTemplate, Validator validator, ProductCache productCache,
+                              ProductEventOutbox productEventOutbox, CategoryStatsService categoryStatsService,
+                              CatalogVersion catalogVersion, ObjectMapper objectMapper,
+                              @Value("${products.bulk.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.validator = validator;
+        this.productCache = productCache;
+        this.productEventOutbox = productEventOutbox;
+        this.categoryStatsService = categoryStatsService;
+        this.catalogVersion = catalogVersion;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.batchSize = batchSize;
+    }
+
+    // Accepts either a JSON array of products or newline-delimited JSON documents
+    public BulkWriteResult upsertAll(InputStream inputStream) throws IOException {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<Product> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(batchSize);
+        int index = 0;
+        try (MappingIterator<Product> products = productReader.readValues(inputStream)) {
+            while (true) {
+                Product product;
+                try {
+                    if (!products.hasNextValue()) {
+                        break;
+                    }
+                    product = products.nextValue();
+                } catch (JsonProcessingException e) {
+                    // The rest of the stream cannot be parsed reliably, keep what was read so far
+                    results.add(BulkItemResult.invalid(index, null, Map.of("error", "Malformed product: " + e.getOriginalMessage())));
+                    break;
+                }
+
+                Map<String, String> errors = validate(product);
+                if (!errors.isEmpty()) {
+                    results.add(BulkItemResult.invalid(index, idOf(product), errors));
+                } else {
+                    batch.add(product);
+                    batchIndexes.add(index);
+                    if (batch.size() == batchSize) {
+                        results.addAll(write(batch, batchIndexes, true));
+                        batch.clear();
+                        batchIndexes.clear();
+                    }
+                }
+                index++;
+            }
+        }
+        if (!batch.isEmpty()) {
+            results.addAll(write(batch, batchIndexes, true));
+        }
+        results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return new BulkWriteResult(results);
+    }
+
+    // Same constraints and error format as GlobalExceptionHandler uses for single products
+    public Map<String, String> validate(Product product) {
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<Product> violation : violations) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+
+    // Upserts already validated products in one unordered bulk write. Failures of single products are
+    // reported in the results; failures of the whole write (e.g. Mongo unreachable) are thrown.
+    public List<BulkItemResult> upsertBatch(List<Product> batch) {
+        List<Integer> indexes = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            indexes.add(i);
+        }
+        return write(batch, indexes, false);
+    }
+
+    // Writes one batch as a single unordered bulk write. Invalid products are left out of batches,
+    // so each product's position in the request is passed alongside it. The products being replaced
+    // are read first in one query, as the category stats need their previous versions. Only the last
+    // product for an id is written, as the order within an unordered bulk write is undefined;
+    // earlier ones share its outcome.
+    private List<BulkItemResult> write(List<Product> batch, List<Integer> requestIndexes, boolean reportWriteFailures) {
+        Map<ObjectId, Integer> latest = new LinkedHashMap<>();
+        Set<ObjectId> ids = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Product product = batch.get(i);
+            if (product.get_id() == null) {
+                product.set_id(new ObjectId());
+            } else {
+                ids.add(product.get_id());
+            }
+            latest.put(product.get_id(), i);
+        }
+        List<Product> products = new ArrayList<>(latest.size());
+        for (int i : latest.values()) {
+            Product product = batch.get(i);
+            product.setVersion(ProductVersions.next());
+            products.add(product);
+        }
+        Map<ObjectId, Product> previous = new HashMap<>();
+        if (!ids.isEmpty()) {
+            mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), Product.class)
+                    .forEach(product -> previous.put(product.get_id(), product));
+        }
+
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (Product product : products) {
+            bulkOperations.replaceOne(Query.query(Criteria.where("_id").is(product.get_id())), product, FindAndReplaceOptions.options().upsert());
+        }
+
+        // Keyed by position in products
+        Map<Integer, String> failures = new HashMap<>();
+        try {
+            bulkOperations.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(error.getIndex(), error.getMessage());
+            }
+        } catch (DataAccessException e) {
+            if (!reportWriteFailures) {
+                throw e;
+            }
+            for (int i = 0; i < products.size(); i++) {
+                failures.put(i, e.getMessage());
+            }
+        }
+
+        Map<ObjectId, String> outcomes = new HashMap<>();
+        List<Product> upserted = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            productCache.invalidate(product.get_id().toHexString());
+            String failure = failures.get(i);
+            if (failure == null) {
+                upserted.add(product);
+            }
+            outcomes.put(product.get_id(), failure);
+        }
+        List<BulkItemResult> results = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            ObjectId id = batch.get(i).get_id();
+            String failure = outcomes.get(id);
+            int index = requestIndexes.get(i);
+            results.add(failure == null ? BulkItemResult.upserted(index, id.toHexString()) : BulkItemResult.failed(index, id.toHexString(), failure));
+        }
+        // Recorded after the bulk write, as bulk writes are not wrapped in a transaction
+        productEventOutbox.recordUpserted(upserted);
+        categoryStatsService.recordAll(previous, upserted);
+        if (!upserted.isEmpty()) {
+            catalogVersion.increment();
+        }
+        return results;
+    }
+
+    private static String idOf(Product product) {
+        return product.get_id() == null ? null : product.get_id().toHexString();
+    }
+}
@@ -0,0 +1,168 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.Product;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-limited cache of products by id (Caffeine, W-TinyLFU eviction).
+ * Bounded by estimated product weight when products.cache.max-weight is set, by entry count otherwise.
+ * Concurrent misses for one id share a single load (single flight): the first caller loads the product
+ * on its own thread and later callers wait for that load, for at most products.cache.load-timeout.
+ * Products are mutable, so callers get their own copy (Product.copy()) and never the cached instance.
+ */
+@Component
+public class ProductCache implements MeterBinder {
+    private final AsyncCache<String, Product> cache;
+    private final Duration loadTimeout;
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loadTimeouts = new LongAdder();
+
+    public ProductCache(@Value("${products.cache.max-entries:10000}") long maxEntries,
+                        @Value("${products.cache.max-weight:0}") long maxWeight,
+                        @Value("${products.cache.ttl:PT5M}") Duration ttl,
+                        @Value("${products.cache.load-timeout:PT5S}") Duration loadTimeout) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .recordStats();
+        if (maxWeight > 0) {
+            builder.maximumWeight(maxWeight).weigher((String id, Product product) -> estimateWeight(product));
+        } else {
+            builder.maximumSize(maxEntries);
+        }
+        this.cache = builder.buildAsync();
+        this.loadTimeout = loadTimeout;
+    }
+
+    // Loads and caches the product on a miss; missing products and failed loads are not cached, and
+    // a failed load fails every caller that was waiting for it. Invalidating an id discards its
+    // in-flight load, so a load that started before a write can never end up in the cache.
+    public Optional<Product> get(String id, Function<String, Optional<Product>> loader) {
+        CompletableFuture<Product> load = new CompletableFuture<>();
+        CompletableFuture<Product> product = cache.get(key(id), (key, executor) -> load);
+        if (product == load) {
+            try {
+                load.complete(loader.apply(id).orElse(null));
+            } catch (RuntimeException | Error e) {
+                load.completeExceptionally(e);
+                throw e;
+            }
+            return copyOf(load.join());
+        }
+        if (!product.isDone()) {
+            coalesced.increment();
+        }
+        return copyOf(await(id, product));
+    }
+
+    // Looks the product up without loading it on a miss or waiting for an in-flight load
+    public Optional<Product> getIfPresent(String id) {
+        CompletableFuture<Product> product = cache.getIfPresent(key(id));
+        if (product == null || !product.isDone() || product.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return copyOf(product.join());
+    }
+
+    public void invalidate(String id) {
+        if (id != null) {
+            cache.synchronous().invalidate(key(id));
+        }
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public Map<String, Long> getStatistics() {
+        Cache<String, Product> synchronous = cache.synchronous();
+        CacheStats stats = synchronous.stats();
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("size", synchronous.estimatedSize());
+        statistics.put("hits", stats.hitCount());
+        statistics.put("misses", stats.missCount());
+        statistics.put("evictions", stats.evictionCount());
+        statistics.put("coalesced", coalesced.sum());
+        statistics.put("loadTimeouts", loadTimeouts.sum());
+        return statistics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("products.cache.coalesced", coalesced, LongAdder::sum)
+                .description("Reads that waited for an in-flight load of the same product instead of querying Mongo")
+                .register(registry);
+        FunctionCounter.builder("products.cache.load.timeouts", loadTimeouts, LongAdder::sum)
+                .description("Reads that gave up waiting for an in-flight load of the same product")
+                .register(registry);
+    }
+
+    private static Optional<Product> copyOf(Product product) {
+        return product == null ? Optional.empty() : Optional.of(product.copy());
+    }
+
+    // Waiters are bounded by load-timeout; the loading caller itself is bounded by the driver's timeouts
+    private Product await(String id, CompletableFuture<Product> product) {
+        try {
+            return product.get(loadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            loadTimeouts.increment();
+            throw new QueryTimeoutException("Timed out after " + loadTimeout.toMillis() + " ms waiting for product " + id + " to load", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted while waiting for product " + id + " to load", e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+
+    // Object ids are case-insensitive hex strings
+    private static String key(String id) {
+        return id.toLowerCase(Locale.ROOT);
+    }
+
+    // Rough size in bytes: string characters plus a fixed cost per dynamic field
+    static int estimateWeight(Product product) {
+        int weight = 64;
+        weight += length(product.getName()) + length(product.getDescription()) + length(product.getCategory());
+        for (Map.Entry<String, Object> field : product.getAdditionalFields().entrySet()) {
+            weight += 32 + field.getKey().length() + String.valueOf(field.getValue()).length();
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
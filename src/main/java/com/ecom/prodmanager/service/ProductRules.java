@@ -0,0 +1,197 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.MultiGetItem;
+import com.ecom.prodmanager.model.PageToken;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductPage;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.ecom.prodmanager.model.ProductVersions;
+import com.ecom.prodmanager.util.ProductETags;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Request rules shared by ProductService and ReactiveProductService, so both APIs behave the same
+final class ProductRules {
+    private static final Set<String> STRING_FIELDS = Set.of("name", "description", "category");
+    private static final Set<String> FIXED_FIELDS = Set.of("_id", ProductVersions.FIELD, "name", "description", "category", "price");
+
+    private ProductRules() {
+    }
+
+    static void validateSearch(ProductSearch search) {
+        if (search.getCategory() == null && search.getMinPrice() == null && search.getMaxPrice() == null
+                && search.getAttributes().isEmpty()) {
+            throw new IllegalArgumentException("At least one of category, minPrice, maxPrice or an attr. filter is required");
+        }
+        if (search.getMinPrice() != null && search.getMaxPrice() != null && search.getMinPrice() > search.getMaxPrice()) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+        for (String attribute : search.getAttributes().keySet()) {
+            if (attribute.isEmpty() || attribute.contains("$") || FIXED_FIELDS.contains(attribute)) {
+                throw new IllegalArgumentException("Invalid attribute filter '" + attribute + "'");
+            }
+        }
+    }
+
+    // Returns null for the first page
+    static PageToken decodePageToken(ProductSortKey sortKey, String pageToken) {
+        if (pageToken == null || pageToken.isEmpty()) {
+            return null;
+        }
+        PageToken token = PageToken.decode(pageToken);
+        if (token.getSortKey() != sortKey) {
+            throw new IllegalArgumentException("Page token was issued for sort '" + token.getSortKey().name().toLowerCase() + "'");
+        }
+        return token;
+    }
+
+    // Pages are fetched with one extra product to find out whether another page exists
+    static ProductPage toPage(ProductSortKey sortKey, List<Product> products, int limit) {
+        if (products.size() <= limit) {
+            return new ProductPage(products, null);
+        }
+        List<Product> page = products.subList(0, limit);
+        return new ProductPage(page, PageToken.after(sortKey, page.get(limit - 1)).encode());
+    }
+
+    // Ids of a multi-get without duplicates, in order of first occurrence. Hex ids are compared
+    // lower-cased, the form ObjectId.toHexString() returns.
+    static List<String> distinctIds(List<String> ids) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("ids must not contain null");
+            }
+            distinct.add(id.toLowerCase(Locale.ROOT));
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    // found is keyed by hex id
+    static List<MultiGetItem> toMultiGetItems(List<String> ids, Map<String, Product> found) {
+        List<MultiGetItem> items = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product product = found.get(id);
+            items.add(product != null ? MultiGetItem.found(id, product) : MultiGetItem.notFound(id));
+        }
+        return items;
+    }
+
+    // The stored product a write with the given If-Match tags applies to: the one with the id at one
+    // of the tagged versions, or at any version for "*". A write through this query is a single
+    // conditional update, so it fails when another write got in between. Tags that cannot match
+    // (weak, sparse reads, other ids) are skipped; with none left the precondition fails right away.
+    static Query ifMatchQuery(String id, List<String> ifMatch) {
+        if (!ObjectId.isValid(id)) {
+            throw new PreconditionFailedException(id);
+        }
+        ObjectId objectId = new ObjectId(id);
+        Criteria criteria = Criteria.where("_id").is(objectId);
+        if (ifMatch.stream().anyMatch(tag -> "*".equals(tag.trim()))) {
+            return Query.query(criteria);
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch) {
+            ProductETags.versionOf(tag, objectId).ifPresent(versions::add);
+        }
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException(id);
+        }
+        if (versions.contains(0L)) {
+            // Version 0 stands for products without a _version field, which null matches
+            versions.add(null);
+        }
+        return Query.query(criteria.and(ProductVersions.FIELD).in(versions));
+    }
+
+    // Only the keys present in changes are touched, keys mapped to null are removed.
+    // Fixed fields are validated like a full product.
+    static Update toUpdate(Map<String, Object> changes, Validator validator) {
+        Update update = new Update();
+        Map<String, String> errors = new HashMap<>();
+        changes.forEach((key, value) -> {
+            if ("_id".equals(key) || ProductVersions.FIELD.equals(key)) {
+                return;
+            }
+            if (key.isEmpty() || key.startsWith("$") || key.contains(".")) {
+                errors.put(key, "Field names must not be empty, start with '$' or contain '.'");
+            } else if (STRING_FIELDS.contains(key)) {
+                if (value != null && !(value instanceof String)) {
+                    errors.put(key, "Must be a string");
+                } else {
+                    addViolations(validator, errors, key, value);
+                    update.set(key, value);
+                }
+            } else if ("price".equals(key)) {
+                if (value != null && !(value instanceof Number)) {
+                    errors.put(key, "Must be a number");
+                } else {
+                    // Prices are always stored as doubles, whatever number type the JSON held
+                    Double price = value == null ? null : ((Number) value).doubleValue();
+                    addViolations(validator, errors, key, price);
+                    update.set(key, price);
+                }
+            } else if (value == null) {
+                update.unset(key);
+            } else {
+                update.set(key, value);
+            }
+        });
+        if (!errors.isEmpty()) {
+            throw new ProductValidationException(errors);
+        }
+        return update;
+    }
+
+    // The product as Mongo stores it after applying an update built by toUpdate
+    static Product applyUpdate(Product product, Update update) {
+        Product updated = new Product();
+        updated.set_id(product.get_id());
+        updated.setVersion(product.getVersion());
+        updated.setName(product.getName());
+        updated.setDescription(product.getDescription());
+        updated.setCategory(product.getCategory());
+        updated.setPrice(product.getPrice());
+        updated.getAdditionalFields().putAll(product.getAdditionalFields());
+        Document set = update.getUpdateObject().get("$set", Document.class);
+        if (set != null) {
+            set.forEach((key, value) -> setField(updated, key, value));
+        }
+        Document unset = update.getUpdateObject().get("$unset", Document.class);
+        if (unset != null) {
+            unset.keySet().forEach(key -> updated.getAdditionalFields().remove(key));
+        }
+        return updated;
+    }
+
+    private static void setField(Product product, String key, Object value) {
+        switch (key) {
+            case "name" -> product.setName((String) value);
+            case "description" -> product.setDescription((String) value);
+            case "category" -> product.setCategory((String) value);
+            case "price" -> product.setPrice((Double) value);
+            case ProductVersions.FIELD -> product.setVersion((Long) value);
+            default -> product.addField(key, value);
+        }
+    }
+
+    private static void addViolations(Validator validator, Map<String, String> errors, String field, Object value) {
+        for (ConstraintViolation<Product> violation : validator.validateValue(Product.class, field, value)) {
+            errors.put(field, violation.getMessage());
+        }
+    }
+}
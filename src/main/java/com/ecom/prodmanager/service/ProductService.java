@@ -1,64 +1,280 @@
 package com.ecom.prodmanager.service;
 
+import com.ecom.prodmanager.events.ProductEventOutbox;
+import com.ecom.prodmanager.model.CategoryStats;
+import com.ecom.prodmanager.model.MultiGetItem;
+import com.ecom.prodmanager.model.PageToken;
 import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductPage;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.ecom.prodmanager.model.ProductVersions;
 import com.ecom.prodmanager.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// Timed per method, tagged with class and method name
+@Timed(value = "products.service", histogram = true)
 @Service
 public class ProductService {
     private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final MongoTemplate mongoTemplate;
+    private final Validator validator;
+    private final AttributeUsageTracker attributeUsageTracker;
+    private final ProductEventOutbox productEventOutbox;
+    private final TransactionOperations transactionOperations;
+    private final CategoryStatsService categoryStatsService;
+    private final CatalogVersion catalogVersion;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductCache productCache,
+                          MongoTemplate mongoTemplate, Validator validator,
+                          AttributeUsageTracker attributeUsageTracker, ProductEventOutbox productEventOutbox,
+                          TransactionOperations transactionOperations, CategoryStatsService categoryStatsService,
+                          CatalogVersion catalogVersion) {
         this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.mongoTemplate = mongoTemplate;
+        this.validator = validator;
+        this.attributeUsageTracker = attributeUsageTracker;
+        this.productEventOutbox = productEventOutbox;
+        this.transactionOperations = transactionOperations;
+        this.categoryStatsService = categoryStatsService;
+        this.catalogVersion = catalogVersion;
     }
 
     public Optional<Product> getProductById(String id) {
-        return productRepository.findById(id);
+        return productCache.get(id, productRepository::findById);
     }
 
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    // Sparse reads are served from a cached full product when there is one, but are not cached themselves
+    public Optional<Product> getProductById(String id, ProductFields fields) {
+        if (fields.isAll()) {
+            return getProductById(id);
+        }
+        Optional<Product> cached = productCache.getIfPresent(id);
+        if (cached.isPresent()) {
+            return cached.map(fields::project);
+        }
+        return productRepository.findById(id, fields);
     }
 
+    // One item per distinct id, in request order. Cached products are served from the cache and the
+    // rest are read with a single $in query; like sparse reads, those are not cached.
+    public List<MultiGetItem> getProductsByIds(List<String> ids, ProductFields fields) {
+        List<String> distinct = ProductRules.distinctIds(ids);
+        Map<String, Product> found = new HashMap<>();
+        List<ObjectId> misses = new ArrayList<>();
+        for (String id : distinct) {
+            Optional<Product> cached = productCache.getIfPresent(id);
+            if (cached.isPresent()) {
+                found.put(id, fields.project(cached.get()));
+            } else if (ObjectId.isValid(id)) {
+                misses.add(new ObjectId(id));
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (Product product : productRepository.findByIds(misses, fields)) {
+                found.put(product.get_id().toHexString(), product);
+            }
+        }
+        return ProductRules.toMultiGetItems(distinct, found);
+    }
+
+    // Read before the products it tags, see CatalogVersion
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    public List<CategoryStats> getCategoryStats() {
+        return categoryStatsService.getStats();
+    }
+
+    public Optional<CategoryStats> getCategoryStats(String category) {
+        return categoryStatsService.getStats(category);
+    }
+
+    public int rebuildCategoryStats() {
+        return categoryStatsService.rebuild();
+    }
+
+    public Map<String, Long> getCacheStatistics() {
+        return productCache.getStatistics();
+    }
+
+    public List<Product> getAllProducts(ProductFields fields) {
+        return productRepository.findAll(fields);
+    }
+
+    // The caller must close the returned stream to release the underlying Mongo cursor
+    public Stream<Product> streamAllProducts(ProductFields fields) {
+        return productRepository.streamAllBy(fields);
+    }
+
+    public ProductPage getProductPage(ProductSortKey sortKey, String pageToken, int limit, ProductFields fields) {
+        PageToken token = ProductRules.decodePageToken(sortKey, pageToken);
+        // Fetch one extra product to find out whether another page exists. The sort field is always
+        // read, as the next page token is built from it.
+        List<Product> products = productRepository.findPage(sortKey, token, limit + 1, fields.including(sortKey.getField()));
+        return ProductRules.toPage(sortKey, products, limit);
+    }
+
+    public List<Product> searchProducts(ProductSearch search, ProductFields fields) {
+        ProductRules.validateSearch(search);
+        attributeUsageTracker.record(search.getAttributes().keySet());
+        return productRepository.search(search, fields);
+    }
+
+    // Each write records its change event in the outbox and applies its difference to the category
+    // stats, in the same transaction when transactions are enabled. Writes read back the previous
+    // version of the product atomically, as the stats need to know what the write replaced. Every
+    // write gives the product a new version and, once done, raises the catalog version; the latter
+    // stays outside the transaction so concurrent writes do not conflict on it.
     public void addProduct(Product product) {
-        productRepository.save(product);
+        product.setVersion(ProductVersions.next());
+        transactionOperations.executeWithoutResult(status -> {
+            if (product.get_id() == null) {
+                Product savedProduct = productRepository.save(product);
+                if (savedProduct != null) {
+                    recordUpserted(null, savedProduct);
+                }
+            } else {
+                // An explicit id may belong to an existing product, which is then replaced
+                Product previous = mongoTemplate.findAndReplace(Query.query(Criteria.where("_id").is(product.get_id())),
+                        product, FindAndReplaceOptions.options().upsert());
+                recordUpserted(previous, product);
+            }
+        });
+        if (product.get_id() != null) {
+            productCache.invalidate(product.get_id().toHexString());
+        }
+        catalogVersion.increment();
     }
 
+    // Replaces the stored product, dynamic fields included, in a single findAndReplace.
+    // Returns empty when no product has the given id.
     public Optional<Product> updateProduct(String id, Product updatedProduct) {
-        Optional<Product> existingProduct = productRepository.findById(id);
-        if (existingProduct.isPresent()) {
-            Product existingProductData = existingProduct.get();
-
-            // Update the required fields
-            existingProductData.setName(updatedProduct.getName());
-            existingProductData.setDescription(updatedProduct.getDescription());
-            existingProductData.setCategory(updatedProduct.getCategory());
-            existingProductData.setPrice(updatedProduct.getPrice());
-
-            // Update the dynamic fields
-            Map<String, Object> updatedFields = updatedProduct.getAdditionalFields();
-            if (updatedFields != null) {
-                // Remove missing fields
-                existingProductData.getAdditionalFields().keySet().removeIf(fieldName -> !updatedFields.containsKey(fieldName));
-
-                // Update the existing fields
-                existingProductData.getAdditionalFields().putAll(updatedFields);
-            }
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(replace(id, Query.query(Criteria.where("_id").is(new ObjectId(id))), updatedProduct));
+    }
 
-            // Save the updated product
-            return Optional.of(productRepository.save(existingProductData));
+    // Like updateProduct, but only while the stored product has one of the versions tagged in
+    // If-Match (see ProductRules.ifMatchQuery). Throws PreconditionFailedException otherwise, also
+    // when there is no such product.
+    public Product updateProduct(String id, Product updatedProduct, List<String> ifMatch) {
+        Product savedProduct = replace(id, ProductRules.ifMatchQuery(id, ifMatch), updatedProduct);
+        if (savedProduct == null) {
+            throw new PreconditionFailedException(id);
         }
-        return Optional.empty();
+        return savedProduct;
     }
 
+    // null when the query matches no product
+    private Product replace(String id, Query query, Product updatedProduct) {
+        updatedProduct.set_id(new ObjectId(id));
+        updatedProduct.setVersion(ProductVersions.next());
+        Product savedProduct = transactionOperations.execute(status -> {
+            Product previous = mongoTemplate.findAndReplace(query, updatedProduct, FindAndReplaceOptions.options());
+            if (previous == null) {
+                return null;
+            }
+            recordUpserted(previous, updatedProduct);
+            return updatedProduct;
+        });
+        productCache.invalidate(id);
+        if (savedProduct != null) {
+            catalogVersion.increment();
+        }
+        return savedProduct;
+    }
+
+    // Applies a partial update (see ProductRules.toUpdate) in a single atomic findAndModify. The
+    // patched product is derived from the previous version the same way Mongo applied the update.
+    public Optional<Product> patchProduct(String id, Map<String, Object> changes) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+        Update update = ProductRules.toUpdate(changes, validator);
+        if (update.getUpdateObject().isEmpty()) {
+            return getProductById(id);
+        }
+        update.set(ProductVersions.FIELD, ProductVersions.next());
+
+        Product patchedProduct = transactionOperations.execute(status -> {
+            Product previous = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(new ObjectId(id))),
+                    update, FindAndModifyOptions.options().returnNew(false), Product.class);
+            if (previous == null) {
+                return null;
+            }
+            Product patched = ProductRules.applyUpdate(previous, update);
+            recordUpserted(previous, patched);
+            return patched;
+        });
+        productCache.invalidate(id);
+        if (patchedProduct != null) {
+            catalogVersion.increment();
+        }
+        return Optional.ofNullable(patchedProduct);
+    }
 
+    // Deleting a product that does not exist changes nothing, so it records no event and keeps the
+    // catalog version
     public void deleteProduct(String id) {
-        productRepository.deleteById(id);
+        if (!ObjectId.isValid(id)) {
+            return;
+        }
+        Product removed = transactionOperations.execute(status -> {
+            Product previous = mongoTemplate.findAndRemove(Query.query(Criteria.where("_id").is(new ObjectId(id))), Product.class);
+            if (previous != null) {
+                categoryStatsService.record(previous, null);
+                productEventOutbox.recordDeleted(id);
+            }
+            return previous;
+        });
+        productCache.invalidate(id);
+        if (removed != null) {
+            catalogVersion.increment();
+        }
+    }
+
+    // Conditional delete, see updateProduct(String, Product, List)
+    public void deleteProduct(String id, List<String> ifMatch) {
+        Query query = ProductRules.ifMatchQuery(id, ifMatch);
+        transactionOperations.executeWithoutResult(status -> {
+            Product previous = mongoTemplate.findAndRemove(query, Product.class);
+            if (previous == null) {
+                throw new PreconditionFailedException(id);
+            }
+            categoryStatsService.record(previous, null);
+            productEventOutbox.recordDeleted(id);
+        });
+        productCache.invalidate(id);
+        catalogVersion.increment();
+    }
+
+    private void recordUpserted(Product previous, Product product) {
+        productEventOutbox.recordUpserted(product);
+        categoryStatsService.record(previous, product);
     }
 }
@@ -0,0 +1,17 @@
+package com.ecom.prodmanager.service;
+
+import java.util.Map;
+
+// Field-level validation errors for input that cannot go through @Valid, keyed by field name
+public class ProductValidationException extends RuntimeException {
+    private final Map<String, String> errors;
+
+    public ProductValidationException(Map<String, String> errors) {
+        super("Invalid product: " + errors);
+        this.errors = errors;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,343 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.BulkItemResult;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.WriteBehindStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Opt-in write-behind for single product POSTs (products.write-behind.enabled). Accepted products
+ * wait in a bounded queue and are written by one flusher thread through ProductBulkService.upsertBatch,
+ * as soon as batch-size products are waiting or flush-interval after the first of them arrived.
+ * What happens when the queue is full is set by products.write-behind.overflow, see Overflow.
+ * Products still queued when the application stops are flushed before it exits; products queued
+ * when the process dies are lost.
+ *
+ * Statuses are kept for status-ttl, but at most max-statuses of them: beyond that the oldest are
+ * evicted early and their tracking ids answer 404. Size it to at least the accepted rate times
+ * status-ttl (100,000 covers about 110 products/s over the default 15 minutes).
+ */
+@Service
+public class ProductWriteBehindService implements SmartLifecycle, MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ProductWriteBehindService.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration RETRY_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+    private static final long STOP_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    public enum Overflow {
+        // Wait up to block-timeout for room, then reject
+        BLOCK,
+        // Fail right away with WriteBehindQueueFullException (503)
+        REJECT,
+        // Hand the product back to the caller to write synchronously
+        SPILL
+    }
+
+    private final ProductBulkService productBulkService;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Overflow overflow;
+    private final Duration blockTimeout;
+    private final BlockingQueue<Pending> queue;
+    private final Cache<String, WriteBehindStatus> statuses;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    // Offers hold the read lock from their running check until the product is queued, so once stop()
+    // has taken the write lock no product can be queued behind the final drain
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public ProductWriteBehindService(ProductBulkService productBulkService,
+                                     @Value("${products.write-behind.enabled:false}") boolean enabled,
+                                     @Value("${products.write-behind.capacity:10000}") int capacity,
+                                     @Value("${products.write-behind.batch-size:500}") int batchSize,
+                                     @Value("${products.write-behind.flush-interval:PT0.05S}") Duration flushInterval,
+                                     @Value("${products.write-behind.overflow:reject}") String overflow,
+                                     @Value("${products.write-behind.block-timeout:PT1S}") Duration blockTimeout,
+                                     @Value("${products.write-behind.status-ttl:PT15M}") Duration statusTtl,
+                                     @Value("${products.write-behind.max-statuses:100000}") long maxStatuses) {
+        this.productBulkService = productBulkService;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.overflow = Overflow.valueOf(overflow.trim().toUpperCase(Locale.ROOT));
+        this.blockTimeout = blockTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.statuses = Caffeine.newBuilder().expireAfterWrite(statusTtl).maximumSize(maxStatuses).build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Queues an already validated product and returns its status, under a new tracking id. Returns empty
+    // when the product was not queued and the caller should write it synchronously: the queue is full
+    // with overflow spill, or the service is not running (disabled or shutting down).
+    public Optional<WriteBehindStatus> offer(Product product) {
+        closeLock.readLock().lock();
+        try {
+            if (!running) {
+                return Optional.empty();
+            }
+            if (product.get_id() == null) {
+                product.set_id(new ObjectId());
+            }
+            WriteBehindStatus status = WriteBehindStatus.queued(UUID.randomUUID().toString(), product.get_id().toHexString());
+            Pending pending = new Pending(status.getTrackingId(), product);
+            statuses.put(status.getTrackingId(), status);
+            if (!enqueue(pending)) {
+                statuses.invalidate(status.getTrackingId());
+                if (overflow == Overflow.SPILL) {
+                    spilled.increment();
+                    return Optional.empty();
+                }
+                rejected.increment();
+                throw new WriteBehindQueueFullException(capacity);
+            }
+            return Optional.of(status);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    public Optional<WriteBehindStatus> getStatus(String trackingId) {
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "product-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Stops accepting products, then waits for the flusher to write what is still queued. Taking the
+    // write lock waits for offers in progress, at most block-timeout with overflow block.
+    @Override
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            flusher.join(SHUTDOWN_TIMEOUT.toMillis());
+            if (flusher.isAlive()) {
+                log.error("Write-behind queue not drained within {} s, {} products were not written",
+                        SHUTDOWN_TIMEOUT.toSeconds(), queue.size());
+            } else {
+                // Products queued while the flusher was finishing its last batch
+                List<Pending> batch = new ArrayList<>(batchSize);
+                while (queue.drainTo(batch, batchSize) > 0) {
+                    flushAndClear(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Started before and stopped after the web server, so requests never reach a stopped queue
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.write-behind.queue.size", queue, BlockingQueue::size)
+                .description("Products accepted by the write-behind queue and not yet written")
+                .register(registry);
+        FunctionCounter.builder("products.write-behind.products", written, LongAdder::sum)
+                .tag("outcome", "written").register(registry);
+        FunctionCounter.builder("products.write-behind.products", failed, LongAdder::sum)
+                .tag("outcome", "failed").register(registry);
+        FunctionCounter.builder("products.write-behind.products", rejected, LongAdder::sum)
+                .tag("outcome", "rejected").register(registry);
+        FunctionCounter.builder("products.write-behind.products", spilled, LongAdder::sum)
+                .tag("outcome", "spilled").register(registry);
+    }
+
+    private boolean enqueue(Pending pending) {
+        if (overflow != Overflow.BLOCK) {
+            return queue.offer(pending);
+        }
+        try {
+            return queue.offer(pending, blockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void flushLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                collect(batch);
+                flushAndClear(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(batch);
+        }
+    }
+
+    // The flusher was interrupted: stops accepting products, which are then written synchronously,
+    // and fails the batch in progress and everything still queued so that no status stays queued
+    private void abandon(List<Pending> batch) {
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        queue.drainTo(batch);
+        log.error("Write-behind flusher interrupted, {} products were not written", batch.size());
+        markFailed(batch, "Write-behind stopped before the product was written");
+        batch.clear();
+    }
+
+    // A batch that cannot be written even after retries is marked failed
+    private void flushAndClear(List<Pending> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            flush(batch);
+        } catch (RuntimeException e) {
+            log.error("Could not flush {} write-behind products", batch.size(), e);
+            markFailed(batch, e.getMessage());
+        }
+        batch.clear();
+    }
+
+    // Waits for a first product, then adds more until the batch is full or flush-interval has passed.
+    // Waits are cut into short polls so that stop() does not have to wait out a long flush-interval.
+    private void collect(List<Pending> batch) throws InterruptedException {
+        Pending first = queue.poll(Math.min(flushInterval.toNanos(), STOP_CHECK_NANOS), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushInterval.toNanos();
+        while (batch.size() < batchSize && running) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(Math.min(remaining, STOP_CHECK_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    // Writes the batch in one bulk write, retrying it when the whole write fails. Only the last
+    // product queued for an id is written, as the bulk write is unordered; earlier ones share its outcome.
+    private void flush(List<Pending> batch) throws InterruptedException {
+        Map<ObjectId, Integer> latest = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            latest.put(batch.get(i).product.get_id(), i);
+        }
+        List<Product> products = new ArrayList<>(latest.size());
+        latest.values().forEach(i -> products.add(batch.get(i).product));
+
+        List<BulkItemResult> results = null;
+        for (int attempt = 1; results == null; attempt++) {
+            try {
+                results = productBulkService.upsertBatch(products);
+            } catch (DataAccessException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Write-behind flush of {} products failed, retrying (attempt {} of {})", products.size(), attempt, MAX_ATTEMPTS, e);
+                Thread.sleep(RETRY_INTERVAL.toMillis());
+            }
+        }
+
+        Map<ObjectId, BulkItemResult> outcomes = new LinkedHashMap<>();
+        for (BulkItemResult result : results) {
+            outcomes.put(products.get(result.getIndex()).get_id(), result);
+        }
+        for (Pending pending : batch) {
+            BulkItemResult result = outcomes.get(pending.product.get_id());
+            if (result.getStatus() == BulkItemResult.Status.UPSERTED) {
+                written.increment();
+                statuses.asMap().computeIfPresent(pending.trackingId, (id, status) -> status.written());
+            } else {
+                failed.increment();
+                statuses.asMap().computeIfPresent(pending.trackingId, (id, status) -> status.failed(result.getErrors().get("error")));
+            }
+        }
+    }
+
+    private void markFailed(List<Pending> batch, String error) {
+        for (Pending pending : batch) {
+            failed.increment();
+            statuses.asMap().computeIfPresent(pending.trackingId, (id, status) -> status.failed(error));
+        }
+    }
+
+    private static final class Pending {
+        private final String trackingId;
+        private final Product product;
+
+        Pending(String trackingId, Product product) {
+            this.trackingId = trackingId;
+            this.product = product;
+        }
+    }
+}
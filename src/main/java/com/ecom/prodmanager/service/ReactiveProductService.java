@@ -0,0 +1,215 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.events.ProductEventOutbox;
+import com.ecom.prodmanager.model.CategoryStats;
+import com.ecom.prodmanager.model.MultiGetItem;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductPage;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.ecom.prodmanager.model.ProductVersions;
+import com.ecom.prodmanager.repository.ReactiveProductRepository;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Non-blocking variant of ProductService for the reactive profile, with the same validation rules.
+ * Reads bypass the product-by-id cache. Change events, category stats and the catalog version are
+ * recorded after each write through the (blocking) outbox, CategoryStatsService and CatalogVersion on
+ * the bounded elastic scheduler, as writes here never run in a transaction.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Service
+public class ReactiveProductService {
+    private final ReactiveProductRepository productRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Validator validator;
+    private final AttributeUsageTracker attributeUsageTracker;
+    private final ProductEventOutbox productEventOutbox;
+    private final CategoryStatsService categoryStatsService;
+    private final CatalogVersion catalogVersion;
+
+    public ReactiveProductService(ReactiveProductRepository productRepository, ReactiveMongoTemplate mongoTemplate,
+                                  Validator validator, AttributeUsageTracker attributeUsageTracker,
+                                  ProductEventOutbox productEventOutbox, CategoryStatsService categoryStatsService,
+                                  CatalogVersion catalogVersion) {
+        this.productRepository = productRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.validator = validator;
+        this.attributeUsageTracker = attributeUsageTracker;
+        this.productEventOutbox = productEventOutbox;
+        this.categoryStatsService = categoryStatsService;
+        this.catalogVersion = catalogVersion;
+    }
+
+    public Mono<Product> getProductById(String id) {
+        return productRepository.findById(id);
+    }
+
+    public Mono<Product> getProductById(String id, ProductFields fields) {
+        if (fields.isAll()) {
+            return getProductById(id);
+        }
+        if (!ObjectId.isValid(id)) {
+            return Mono.empty();
+        }
+        return mongoTemplate.findOne(fields.applyTo(Query.query(Criteria.where("_id").is(new ObjectId(id)))), Product.class);
+    }
+
+    // One item per distinct id, in request order, read with a single $in query
+    public Mono<List<MultiGetItem>> getProductsByIds(List<String> ids, ProductFields fields) {
+        return Mono.fromCallable(() -> ProductRules.distinctIds(ids))
+                .flatMap(distinct -> {
+                    List<ObjectId> objectIds = distinct.stream().filter(ObjectId::isValid).map(ObjectId::new).toList();
+                    Mono<Map<String, Product>> found = objectIds.isEmpty()
+                            ? Mono.just(Map.of())
+                            : mongoTemplate.find(fields.applyTo(Query.query(Criteria.where("_id").in(objectIds))), Product.class)
+                                    .collectMap(product -> product.get_id().toHexString());
+                    return found.map(products -> ProductRules.toMultiGetItems(distinct, products));
+                });
+    }
+
+    // Read before the products it tags, see CatalogVersion
+    public Mono<Long> getCatalogVersion() {
+        return Mono.fromCallable(catalogVersion::get).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Decoded by ProductCodec straight from the driver; the driver only fetches further batches as
+    // the subscriber requests them, so a slow client slows down the cursor instead of buffering
+    public Flux<Product> getAllProducts(ProductFields fields) {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                .flatMapMany(collection -> collection.withDocumentClass(Product.class).find().projection(fields.toProjection()));
+    }
+
+    // Fetches one extra product to find out whether another page exists; the sort field is always
+    // read, as the next page token is built from it
+    public Mono<ProductPage> getProductPage(ProductSortKey sortKey, String pageToken, int limit, ProductFields fields) {
+        return Mono.fromCallable(() -> fields.including(sortKey.getField())
+                        .applyTo(sortKey.pageQuery(ProductRules.decodePageToken(sortKey, pageToken), limit + 1)))
+                .flatMap(query -> mongoTemplate.find(query, Product.class).collectList())
+                .map(products -> ProductRules.toPage(sortKey, products, limit));
+    }
+
+    public Flux<Product> searchProducts(ProductSearch search, ProductFields fields) {
+        return Mono.fromRunnable(() -> {
+                    ProductRules.validateSearch(search);
+                    attributeUsageTracker.record(search.getAttributes().keySet());
+                })
+                .thenMany(Flux.defer(() -> mongoTemplate.find(fields.applyTo(search.toQuery()), Product.class)));
+    }
+
+    public Mono<Product> addProduct(Product product) {
+        product.setVersion(ProductVersions.next());
+        if (product.get_id() == null) {
+            return productRepository.save(product).flatMap(saved -> recordUpserted(null, saved));
+        }
+        // An explicit id may belong to an existing product, which is then replaced
+        return mongoTemplate.findAndReplace(Query.query(Criteria.where("_id").is(product.get_id())),
+                        product, FindAndReplaceOptions.options().upsert())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(previous -> recordUpserted(previous.orElse(null), product));
+    }
+
+    // Returns empty when no product has the given id
+    public Mono<Product> updateProduct(String id, Product updatedProduct) {
+        if (!ObjectId.isValid(id)) {
+            return Mono.empty();
+        }
+        return replace(id, Query.query(Criteria.where("_id").is(new ObjectId(id))), updatedProduct);
+    }
+
+    // Conditional update for If-Match, see ProductService.updateProduct(String, Product, List)
+    public Mono<Product> updateProduct(String id, Product updatedProduct, List<String> ifMatch) {
+        return Mono.fromCallable(() -> ProductRules.ifMatchQuery(id, ifMatch))
+                .flatMap(query -> replace(id, query, updatedProduct))
+                .switchIfEmpty(Mono.error(() -> new PreconditionFailedException(id)));
+    }
+
+    private Mono<Product> replace(String id, Query query, Product updatedProduct) {
+        updatedProduct.set_id(new ObjectId(id));
+        updatedProduct.setVersion(ProductVersions.next());
+        return mongoTemplate.findAndReplace(query, updatedProduct, FindAndReplaceOptions.options())
+                .flatMap(previous -> recordUpserted(previous, updatedProduct));
+    }
+
+    public Mono<Product> patchProduct(String id, Map<String, Object> changes) {
+        if (!ObjectId.isValid(id)) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> ProductRules.toUpdate(changes, validator))
+                .flatMap(update -> update.getUpdateObject().isEmpty() ? getProductById(id) : patch(id, update));
+    }
+
+    private Mono<Product> patch(String id, Update update) {
+        update.set(ProductVersions.FIELD, ProductVersions.next());
+        return mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(new ObjectId(id))),
+                        update, FindAndModifyOptions.options().returnNew(false), Product.class)
+                .flatMap(previous -> recordUpserted(previous, ProductRules.applyUpdate(previous, update)));
+    }
+
+    // Like ProductService, records nothing when there was no such product
+    public Mono<Void> deleteProduct(String id) {
+        if (!ObjectId.isValid(id)) {
+            return Mono.empty();
+        }
+        return mongoTemplate.findAndRemove(Query.query(Criteria.where("_id").is(new ObjectId(id))), Product.class)
+                .flatMap(previous -> recordDeleted(id, previous));
+    }
+
+    // Conditional delete for If-Match, see ProductService.updateProduct(String, Product, List)
+    public Mono<Void> deleteProduct(String id, List<String> ifMatch) {
+        return Mono.fromCallable(() -> ProductRules.ifMatchQuery(id, ifMatch))
+                .flatMap(query -> mongoTemplate.findAndRemove(query, Product.class))
+                .switchIfEmpty(Mono.error(() -> new PreconditionFailedException(id)))
+                .flatMap(previous -> recordDeleted(id, previous));
+    }
+
+    public Mono<List<CategoryStats>> getCategoryStats() {
+        return Mono.fromCallable(categoryStatsService::getStats).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<CategoryStats> getCategoryStats(String category) {
+        return Mono.fromCallable(() -> categoryStatsService.getStats(category).orElse(null)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<Integer> rebuildCategoryStats() {
+        return Mono.fromCallable(categoryStatsService::rebuild).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Product> recordUpserted(Product previous, Product product) {
+        return Mono.fromRunnable(() -> {
+                    productEventOutbox.recordUpserted(product);
+                    categoryStatsService.record(previous, product);
+                    catalogVersion.increment();
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(product);
+    }
+
+    private Mono<Void> recordDeleted(String id, Product previous) {
+        return Mono.fromRunnable(() -> {
+                    categoryStatsService.record(previous, null);
+                    productEventOutbox.recordDeleted(id);
+                    catalogVersion.increment();
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+}
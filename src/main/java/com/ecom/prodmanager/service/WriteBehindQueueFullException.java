@@ -0,0 +1,8 @@
+package com.ecom.prodmanager.service;
+
+// Thrown when the write-behind queue has no room for another product and overflow is reject or block
+public class WriteBehindQueueFullException extends RuntimeException {
+    public WriteBehindQueueFullException(int capacity) {
+        super("Write-behind queue is full (" + capacity + " products)");
+    }
+}
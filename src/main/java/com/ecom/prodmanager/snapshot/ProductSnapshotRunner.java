@@ -0,0 +1,66 @@
+package com.ecom.prodmanager.snapshot;
+
+import com.ecom.prodmanager.model.SnapshotResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command-line export and import. Started with --snapshot.export=FILE or --snapshot.import=FILE
+ * (plus --snapshot.replace to replace existing products), the application runs the snapshot and
+ * exits, with status 1 if it failed. Add --spring.main.web-application-type=none to skip starting
+ * the web server.
+ */
+@Component
+public class ProductSnapshotRunner implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(ProductSnapshotRunner.class);
+
+    static final String EXPORT_OPTION = "snapshot.export";
+    static final String IMPORT_OPTION = "snapshot.import";
+    static final String REPLACE_OPTION = "snapshot.replace";
+
+    private final ProductSnapshotService productSnapshotService;
+    private final ApplicationContext applicationContext;
+
+    public ProductSnapshotRunner(ProductSnapshotService productSnapshotService, ApplicationContext applicationContext) {
+        this.productSnapshotService = productSnapshotService;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String exportFile = option(args, EXPORT_OPTION);
+        String importFile = option(args, IMPORT_OPTION);
+        if (exportFile == null && importFile == null) {
+            return;
+        }
+        int exitCode = runSnapshot(exportFile, importFile, args.containsOption(REPLACE_OPTION));
+        System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+    }
+
+    private int runSnapshot(String exportFile, String importFile, boolean replaceExisting) {
+        try {
+            SnapshotResult result = exportFile != null
+                    ? productSnapshotService.exportSnapshot(Path.of(exportFile))
+                    : productSnapshotService.importSnapshot(Path.of(importFile), replaceExisting);
+            log.info("Snapshot done: {}", result);
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            log.error("Snapshot failed", e);
+            return 1;
+        }
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
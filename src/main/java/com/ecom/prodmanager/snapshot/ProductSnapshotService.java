@@ -0,0 +1,283 @@
+package com.ecom.prodmanager.snapshot;
+
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductVersions;
+import com.ecom.prodmanager.model.SnapshotResult;
+import com.ecom.prodmanager.service.CatalogVersion;
+import com.ecom.prodmanager.service.CategoryStatsService;
+import com.ecom.prodmanager.service.ProductCache;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import io.micrometer.core.annotation.Timed;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonElement;
+import org.bson.BsonInt64;
+import org.bson.RawBsonDocument;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exports the products collection to a snapshot file (see SnapshotFormat) and imports it back.
+ * Documents are copied as raw BSON in both directions, without decoding them into products, and
+ * neither side holds more than a few batches in memory. Imports write batches as parallel unordered
+ * bulk writes and bypass the event outbox; the cache and category stats are reset afterwards. Imported
+ * products keep the version they were exported with, as it still identifies their content.
+ */
+@Timed(value = "products.service", histogram = true)
+@Service
+public class ProductSnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(ProductSnapshotService.class);
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductCache productCache;
+    private final CategoryStatsService categoryStatsService;
+    private final CatalogVersion catalogVersion;
+    private final Path directory;
+    private final int batchSize;
+    private final int parallelism;
+
+    public ProductSnapshotService(MongoTemplate mongoTemplate, ProductCache productCache,
+                                  CategoryStatsService categoryStatsService, CatalogVersion catalogVersion,
+                                  @Value("${products.snapshot.dir:snapshots}") String directory,
+                                  @Value("${products.snapshot.batch-size:1000}") int batchSize,
+                                  @Value("${products.snapshot.parallelism:4}") int parallelism) {
+        this.mongoTemplate = mongoTemplate;
+        this.productCache = productCache;
+        this.categoryStatsService = categoryStatsService;
+        this.catalogVersion = catalogVersion;
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    // The admin endpoints can only name files directly inside products.snapshot.dir
+    public Path resolve(String name) {
+        Path file = directory.resolve(name).normalize();
+        if (name.isBlank() || !directory.equals(file.getParent())) {
+            throw new IllegalArgumentException("Invalid snapshot name '" + name + "'");
+        }
+        return file;
+    }
+
+    // Written to a temporary file first, so an existing snapshot is only replaced by a complete one
+    public SnapshotResult exportSnapshot(Path file) throws IOException {
+        long started = System.nanoTime();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        MongoCollection<RawBsonDocument> collection = collection();
+        Progress progress = new Progress("Exported", collection.estimatedDocumentCount());
+        SnapshotResult result;
+        try (SnapshotWriter writer = new SnapshotWriter(temporary);
+             MongoCursor<RawBsonDocument> cursor = collection.find().batchSize(batchSize).cursor()) {
+            while (cursor.hasNext()) {
+                writer.write(cursor.next());
+                progress.report(writer.getCount());
+            }
+            writer.finish();
+            result = new SnapshotResult(file.toString(), writer.getCount(), 0, writer.getSize(),
+                    SnapshotFormat.formatChecksum(writer.getChecksum()), elapsedMillis(started));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Exported {}", result);
+        return result;
+    }
+
+    // Inserts the snapshot's products. Products whose id already exists are skipped, or replaced when
+    // replaceExisting is set. The whole file is verified before anything is written, so a damaged
+    // snapshot is rejected without touching the collection.
+    public SnapshotResult importSnapshot(Path file, boolean replaceExisting) throws IOException {
+        long started = System.nanoTime();
+        SnapshotReader.verify(file);
+
+        BatchWriter batchWriter = new BatchWriter(collection(), parallelism);
+        long size;
+        int checksum;
+        try (SnapshotReader reader = SnapshotReader.open(file)) {
+            size = reader.getFileSize();
+            checksum = reader.getExpectedChecksum();
+            Progress progress = new Progress("Imported", reader.getExpectedCount());
+            List<WriteModel<RawBsonDocument>> batch = new ArrayList<>(batchSize);
+            RawBsonDocument document;
+            while ((document = reader.next()) != null) {
+                batch.add(toWriteModel(document, replaceExisting));
+                if (batch.size() == batchSize) {
+                    batchWriter.submit(batch);
+                    batch = new ArrayList<>(batchSize);
+                    progress.report(batchWriter.written.sum() + batchWriter.skipped.sum());
+                }
+            }
+            if (!batch.isEmpty()) {
+                batchWriter.submit(batch);
+            }
+            batchWriter.awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing " + file);
+        } finally {
+            batchWriter.shutdown();
+        }
+
+        productCache.invalidateAll();
+        catalogVersion.increment();
+        categoryStatsService.rebuild();
+        SnapshotResult result = new SnapshotResult(file.toString(), batchWriter.written.sum(), batchWriter.skipped.sum(),
+                size, SnapshotFormat.formatChecksum(checksum), elapsedMillis(started));
+        log.info("Imported {}", result);
+        return result;
+    }
+
+    private MongoCollection<RawBsonDocument> collection() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class)).withDocumentClass(RawBsonDocument.class);
+    }
+
+    private static WriteModel<RawBsonDocument> toWriteModel(RawBsonDocument document, boolean replaceExisting) {
+        document = versioned(document);
+        if (replaceExisting) {
+            return new ReplaceOneModel<>(new BsonDocument("_id", document.get("_id")), document, new ReplaceOptions().upsert(true));
+        }
+        return new InsertOneModel<>(document);
+    }
+
+    // Products exported before versions were introduced get one, like any other write gives them. The
+    // document is copied as BSON with the field appended, without decoding it.
+    static RawBsonDocument versioned(RawBsonDocument document) {
+        if (document.containsKey(ProductVersions.FIELD)) {
+            return document;
+        }
+        BasicOutputBuffer buffer = new BasicOutputBuffer(document.getByteBuffer().remaining() + 32);
+        try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO());
+             BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.pipe(reader, List.of(new BsonElement(ProductVersions.FIELD, new BsonInt64(ProductVersions.next()))));
+        }
+        return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+    }
+
+    private static long elapsedMillis(long started) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    // Runs unordered bulk writes on a fixed pool. At most two batches per thread are queued, which
+    // keeps the reader from getting ahead of Mongo. The first failed batch fails the import.
+    private static final class BatchWriter {
+        private final MongoCollection<RawBsonDocument> collection;
+        private final ExecutorService executor;
+        private final Semaphore permits;
+        private final int maxPermits;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final LongAdder written = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+
+        BatchWriter(MongoCollection<RawBsonDocument> collection, int parallelism) {
+            this.collection = collection;
+            this.executor = Executors.newFixedThreadPool(parallelism);
+            this.maxPermits = parallelism * 2;
+            this.permits = new Semaphore(maxPermits);
+        }
+
+        void submit(List<WriteModel<RawBsonDocument>> batch) throws InterruptedException {
+            throwIfFailed();
+            permits.acquire();
+            executor.execute(() -> {
+                try {
+                    write(batch);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        void awaitCompletion() throws InterruptedException {
+            permits.acquire(maxPermits);
+            permits.release(maxPermits);
+            throwIfFailed();
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+
+        // Duplicate ids are skipped products; any other write error fails the batch
+        private void write(List<WriteModel<RawBsonDocument>> batch) {
+            try {
+                collection.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+                written.add(batch.size());
+            } catch (MongoBulkWriteException e) {
+                List<BulkWriteError> errors = e.getWriteErrors();
+                long duplicates = errors.stream().filter(error -> error.getCode() == DUPLICATE_KEY).count();
+                if (duplicates < errors.size()) {
+                    throw e;
+                }
+                written.add(batch.size() - duplicates);
+                skipped.add(duplicates);
+            }
+        }
+
+        private void throwIfFailed() {
+            RuntimeException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+    }
+
+    // Logs how far an export or import has got, at most every PROGRESS_INTERVAL_NANOS
+    private static final class Progress {
+        private final String action;
+        private final long total;
+        private final long started = System.nanoTime();
+        private long nextReport = started + PROGRESS_INTERVAL_NANOS;
+
+        Progress(String action, long total) {
+            this.action = action;
+            this.total = total;
+        }
+
+        void report(long done) {
+            long now = System.nanoTime();
+            if (now >= nextReport) {
+                nextReport = now + PROGRESS_INTERVAL_NANOS;
+                long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(now - started));
+                log.info("{} {} of {} products ({}%, {}/s)", action, done, total,
+                        total > 0 ? done * 100 / total : 100, done / seconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecom.prodmanager.snapshot;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a product snapshot file, little-endian like BSON itself:
+ * <pre>
+ * header   "PRODSNAP", int32 format version
+ * body     the raw BSON documents of the products collection, back to back;
+ *          every BSON document starts with its own int32 length
+ * trailer  int32 0 (shorter than any BSON document), int64 document count,
+ *          int32 CRC32C of the body, "PRODSNAP"
+ * </pre>
+ * The trailer is written last, so a file without one is an export that did not finish.
+ */
+final class SnapshotFormat {
+    static final byte[] MAGIC = "PRODSNAP".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+    static final int TRAILER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES + MAGIC.length;
+
+    // The smallest BSON document, {}, is a length and a terminating zero byte
+    static final int MIN_DOCUMENT_SIZE = 5;
+
+    private SnapshotFormat() {
+    }
+
+    static String formatChecksum(int checksum) {
+        return String.format("%08x", checksum);
+    }
+}
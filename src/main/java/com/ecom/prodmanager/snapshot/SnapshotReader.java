@@ -0,0 +1,179 @@
+package com.ecom.prodmanager.snapshot;
+
+import org.bson.RawBsonDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a snapshot file (see SnapshotFormat) through memory-mapped windows, one document at a time.
+ * The header and trailer are checked when the file is opened; the document count and checksum are
+ * checked once the last document has been read. Format errors are thrown as IllegalArgumentException.
+ */
+final class SnapshotReader implements Closeable {
+    // Larger than Mongo's 16 MiB document limit, so a window always fits at least one whole document
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long bodyEnd;
+    private final long expectedCount;
+    private final int expectedChecksum;
+    private final CRC32C checksum = new CRC32C();
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position = SnapshotFormat.HEADER_SIZE;
+    private long count;
+
+    private SnapshotReader(Path file, FileChannel channel, long fileSize, long expectedCount, int expectedChecksum) {
+        this.file = file;
+        this.channel = channel;
+        this.fileSize = fileSize;
+        this.bodyEnd = fileSize - SnapshotFormat.TRAILER_SIZE;
+        this.expectedCount = expectedCount;
+        this.expectedChecksum = expectedChecksum;
+    }
+
+    static SnapshotReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < SnapshotFormat.HEADER_SIZE + SnapshotFormat.TRAILER_SIZE) {
+                throw invalid(file, "too short");
+            }
+            ByteBuffer header = read(channel, 0, SnapshotFormat.HEADER_SIZE);
+            if (!hasMagic(header, 0)) {
+                throw invalid(file, "not a product snapshot");
+            }
+            int version = header.getInt(SnapshotFormat.MAGIC.length);
+            if (version != SnapshotFormat.VERSION) {
+                throw invalid(file, "unsupported version " + version);
+            }
+            ByteBuffer trailer = read(channel, size - SnapshotFormat.TRAILER_SIZE, SnapshotFormat.TRAILER_SIZE);
+            if (trailer.getInt(0) != 0 || !hasMagic(trailer, SnapshotFormat.TRAILER_SIZE - SnapshotFormat.MAGIC.length)) {
+                throw invalid(file, "no trailer, the export did not finish");
+            }
+            return new SnapshotReader(file, channel, size, trailer.getLong(Integer.BYTES),
+                    trailer.getInt(Integer.BYTES + Long.BYTES));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Reads the whole file without decoding it, checking the document lengths, count and checksum
+    static void verify(Path file) throws IOException {
+        try (SnapshotReader reader = open(file)) {
+            while (reader.skip()) {
+                // checksummed by skip
+            }
+        }
+    }
+
+    // The next document, or null after the last one
+    RawBsonDocument next() throws IOException {
+        int length = nextLength();
+        if (length == 0) {
+            return null;
+        }
+        int index = offset(position, length);
+        byte[] bytes = new byte[length];
+        window.get(index, bytes);
+        checksum.update(bytes);
+        position += length;
+        count++;
+        return new RawBsonDocument(bytes);
+    }
+
+    long getExpectedCount() {
+        return expectedCount;
+    }
+
+    int getExpectedChecksum() {
+        return expectedChecksum;
+    }
+
+    long getFileSize() {
+        return fileSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean skip() throws IOException {
+        int length = nextLength();
+        if (length == 0) {
+            return false;
+        }
+        int index = offset(position, length);
+        checksum.update(window.slice(index, length));
+        position += length;
+        count++;
+        return true;
+    }
+
+    // Length of the document at the current position, or 0 at the end of the body once it checks out
+    private int nextLength() throws IOException {
+        if (position == bodyEnd) {
+            if (count != expectedCount) {
+                throw invalid(file, "contains " + count + " products, the trailer says " + expectedCount);
+            }
+            if ((int) checksum.getValue() != expectedChecksum) {
+                throw invalid(file, "checksum " + SnapshotFormat.formatChecksum((int) checksum.getValue())
+                        + " does not match " + SnapshotFormat.formatChecksum(expectedChecksum));
+            }
+            return 0;
+        }
+        if (bodyEnd - position < SnapshotFormat.MIN_DOCUMENT_SIZE) {
+            throw invalid(file, "truncated document at offset " + position);
+        }
+        int index = offset(position, Integer.BYTES);
+        int length = window.getInt(index);
+        if (length < SnapshotFormat.MIN_DOCUMENT_SIZE || length > bodyEnd - position) {
+            throw invalid(file, "invalid document length " + length + " at offset " + position);
+        }
+        return length;
+    }
+
+    // Index of the given file range in the current window, mapping a new window when it is not covered.
+    // Must be called before reading from window, as it may replace it.
+    private int offset(long at, int length) throws IOException {
+        if (window == null || at < windowStart || at + length > windowStart + window.capacity()) {
+            windowStart = at;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW_SIZE, fileSize - at));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return (int) (at - windowStart);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, int index) {
+        byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+        buffer.get(index, magic);
+        return Arrays.equals(magic, SnapshotFormat.MAGIC);
+    }
+
+    private static IllegalArgumentException invalid(Path file, String reason) {
+        return new IllegalArgumentException("Invalid snapshot " + file.getFileName() + ": " + reason);
+    }
+}
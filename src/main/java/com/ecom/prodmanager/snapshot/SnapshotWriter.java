@@ -0,0 +1,87 @@
+package com.ecom.prodmanager.snapshot;
+
+import org.bson.RawBsonDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes a snapshot file (see SnapshotFormat). Documents are copied as raw BSON bytes into a direct
+ * buffer that is written to the file channel whenever it fills up.
+ */
+final class SnapshotWriter implements Closeable {
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C checksum = new CRC32C();
+    private long count;
+    private long size;
+
+    SnapshotWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        buffer.put(SnapshotFormat.MAGIC).putInt(SnapshotFormat.VERSION);
+        size = SnapshotFormat.HEADER_SIZE;
+    }
+
+    void write(RawBsonDocument document) throws IOException {
+        ByteBuffer bson = document.getByteBuffer().asNIO();
+        int length = bson.remaining();
+        checksum.update(bson.duplicate());
+        if (length > buffer.remaining()) {
+            flush();
+        }
+        if (length > buffer.capacity()) {
+            while (bson.hasRemaining()) {
+                channel.write(bson);
+            }
+        } else {
+            buffer.put(bson);
+        }
+        count++;
+        size += length;
+    }
+
+    // Writes the trailer and forces the file to disk; the snapshot is incomplete until this returns
+    void finish() throws IOException {
+        if (buffer.remaining() < SnapshotFormat.TRAILER_SIZE) {
+            flush();
+        }
+        buffer.putInt(0).putLong(count).putInt((int) checksum.getValue()).put(SnapshotFormat.MAGIC);
+        size += SnapshotFormat.TRAILER_SIZE;
+        flush();
+        channel.force(false);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    int getChecksum() {
+        return (int) checksum.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
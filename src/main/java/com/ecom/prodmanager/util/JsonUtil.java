@@ -8,7 +8,7 @@ import java.util.List;
 
 public final class JsonUtil {
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = new ObjectMapper().registerModule(new ProductJsonModule());
 
     public static String toJson(Object object) throws JsonProcessingException {
         return objectMapper.writeValueAsString(object);
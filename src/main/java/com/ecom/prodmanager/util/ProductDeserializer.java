@@ -0,0 +1,82 @@
+package com.ecom.prodmanager.util;
+
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductVersions;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+
+// Reads the fixed fields directly from the token stream; every other field becomes a dynamic field,
+// exactly as with @JsonAnySetter, except _version, which is ignored. Non-string tokens fall back to
+// Jackson's usual coercions.
+public class ProductDeserializer extends JsonDeserializer<Product> {
+    @Override
+    public Product deserialize(JsonParser jsonParser, DeserializationContext context) throws IOException {
+        JsonToken token = jsonParser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jsonParser.nextToken();
+        } else if (token != JsonToken.FIELD_NAME) {
+            return (Product) context.handleUnexpectedToken(Product.class, jsonParser);
+        }
+
+        Product product = new Product();
+        for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+            String fieldName = jsonParser.currentName();
+            JsonToken valueToken = jsonParser.nextToken();
+            switch (fieldName) {
+                case "_id" -> product.set_id(readObjectId(jsonParser, context, valueToken));
+                case "name" -> product.setName(readString(jsonParser, context, valueToken));
+                case "description" -> product.setDescription(readString(jsonParser, context, valueToken));
+                case "category" -> product.setCategory(readString(jsonParser, context, valueToken));
+                case "price" -> product.setPrice(readDouble(jsonParser, context, valueToken));
+                // Versions are assigned by the server on every write
+                case ProductVersions.FIELD -> jsonParser.skipChildren();
+                default -> product.setFields(fieldName, valueToken == JsonToken.VALUE_NULL ? null : context.readValue(jsonParser, Object.class));
+            }
+        }
+        return product;
+    }
+
+    @Override
+    public Class<?> handledType() {
+        return Product.class;
+    }
+
+    private static ObjectId readObjectId(JsonParser jsonParser, DeserializationContext context, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String hex = jsonParser.getText();
+            if (!ObjectId.isValid(hex)) {
+                return (ObjectId) context.handleWeirdStringValue(ObjectId.class, hex, "not a valid ObjectId");
+            }
+            return new ObjectId(hex);
+        }
+        return context.readValue(jsonParser, ObjectId.class);
+    }
+
+    private static String readString(JsonParser jsonParser, DeserializationContext context, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            return jsonParser.getText();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return context.readValue(jsonParser, String.class);
+    }
+
+    private static Double readDouble(JsonParser jsonParser, DeserializationContext context, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+            return jsonParser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return context.readValue(jsonParser, Double.class);
+    }
+}
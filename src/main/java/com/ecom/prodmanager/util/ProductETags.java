@@ -0,0 +1,72 @@
+package com.ecom.prodmanager.util;
+
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductVersions;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.OptionalLong;
+import java.util.TreeSet;
+
+/**
+ * Strong ETags built from versions, so tagging a response never reads or hashes the products:
+ * "<id>-<version>" for a product (see ProductVersions) and "all-<version>" for the list of all
+ * products (see CatalogVersion). Sparse reads (?fields=) are other representations, so their tags
+ * get a suffix identifying the field selection.
+ */
+public final class ProductETags {
+    private static final String CATALOG = "all";
+    // 64 bits of SHA-256 of the sorted field names
+    private static final int FIELDS_KEY_BYTES = 8;
+
+    private ProductETags() {
+    }
+
+    public static String of(Product product, ProductFields fields) {
+        return tag(product.get_id().toHexString() + "-" + Long.toHexString(ProductVersions.of(product)), fields);
+    }
+
+    public static String ofCatalog(long catalogVersion, ProductFields fields) {
+        return tag(CATALOG + "-" + Long.toHexString(catalogVersion), fields);
+    }
+
+    // The version in a tag of the whole product with the given id, as sent in If-Match; empty for
+    // weak tags, tags of sparse reads or other products, and anything that is not one of our tags
+    public static OptionalLong versionOf(String tag, ObjectId id) {
+        String prefix = "\"" + id.toHexString() + "-";
+        String trimmed = tag.trim();
+        if (!trimmed.regionMatches(true, 0, prefix, 0, prefix.length()) || !trimmed.endsWith("\"")) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Long.parseLong(trimmed.substring(prefix.length(), trimmed.length() - 1), 16));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    private static String tag(String value, ProductFields fields) {
+        return "\"" + (fields.isAll() ? value : value + "-" + fieldsKey(fields)) + "\"";
+    }
+
+    // Field order does not change the response, so the names are sorted first
+    private static String fieldsKey(ProductFields fields) {
+        byte[] names = String.join(",", new TreeSet<>(fields.getNames())).getBytes(StandardCharsets.UTF_8);
+        byte[] hash = Arrays.copyOf(sha256().digest(names), FIELDS_KEY_BYTES);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
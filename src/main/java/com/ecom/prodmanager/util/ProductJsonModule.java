@@ -0,0 +1,15 @@
+package com.ecom.prodmanager.util;
+
+import com.ecom.prodmanager.model.Product;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.bson.types.ObjectId;
+
+// Custom serializers shared by the Spring ObjectMapper and JsonUtil
+public class ProductJsonModule extends SimpleModule {
+    public ProductJsonModule() {
+        super("ProductJsonModule");
+        addSerializer(ObjectId.class, new ObjectIdSerializer());
+        addSerializer(Product.class, new ProductSerializer());
+        addDeserializer(Product.class, new ProductDeserializer());
+    }
+}
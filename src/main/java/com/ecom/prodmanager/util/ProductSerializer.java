@@ -0,0 +1,44 @@
+package com.ecom.prodmanager.util;
+
+import com.ecom.prodmanager.model.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Writes the fixed fields and then the dynamic fields in one pass, the same layout @JsonAnyGetter produces
+public class ProductSerializer extends JsonSerializer<Product> {
+    @Override
+    public void serialize(Product product, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
+        jsonGenerator.writeStartObject(product);
+        if (product.get_id() == null) {
+            jsonGenerator.writeNullField("_id");
+        } else {
+            jsonGenerator.writeStringField("_id", product.get_id().toHexString());
+        }
+        // Fixed fields without a value are left out, so sparse fieldsets (?fields=) only show what was selected
+        writeStringField(jsonGenerator, "name", product.getName());
+        writeStringField(jsonGenerator, "description", product.getDescription());
+        writeStringField(jsonGenerator, "category", product.getCategory());
+        if (product.getPrice() != null) {
+            jsonGenerator.writeNumberField("price", product.getPrice());
+        }
+        for (Map.Entry<String, Object> field : product.getAdditionalFields().entrySet()) {
+            serializerProvider.defaultSerializeField(field.getKey(), field.getValue(), jsonGenerator);
+        }
+        jsonGenerator.writeEndObject();
+    }
+
+    private static void writeStringField(JsonGenerator jsonGenerator, String name, String value) throws IOException {
+        if (value != null) {
+            jsonGenerator.writeStringField(name, value);
+        }
+    }
+
+    @Override
+    public Class<Product> handledType() {
+        return Product.class;
+    }
+}
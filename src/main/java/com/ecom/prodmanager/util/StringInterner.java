@@ -0,0 +1,33 @@
+package com.ecom.prodmanager.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of low-cardinality strings such as dynamic field names and categories, so
+ * products read in bulk share one String per distinct value instead of holding a copy each.
+ * Bounded: once full, or for long values, strings are returned as they are.
+ */
+public final class StringInterner {
+    static final int MAX_ENTRIES = 10_000;
+    static final int MAX_LENGTH = 64;
+
+    private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+    private StringInterner() {
+    }
+
+    public static String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        String canonical = POOL.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (POOL.size() >= MAX_ENTRIES) {
+            return value;
+        }
+        canonical = POOL.putIfAbsent(value, value);
+        return canonical == null ? value : canonical;
+    }
+}
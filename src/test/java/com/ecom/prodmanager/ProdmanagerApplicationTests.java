@@ -1,13 +1,47 @@
 package com.ecom.prodmanager;
 
+import com.ecom.prodmanager.controller.ProductController;
+import com.ecom.prodmanager.controller.ReactiveProductController;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 class ProdmanagerApplicationTests {
 
+	@Autowired
+	private ApplicationContext context;
+
 	@Test
 	void contextLoads() {
+		// The servlet stack only uses the blocking Mongo client
+		assertThat(context.getBeanNamesForType(ProductController.class)).hasSize(1);
+		assertThat(context.getBeanNamesForType(ReactiveProductController.class)).isEmpty();
+		assertThat(context.getBeanNamesForType(ReactiveMongoTemplate.class)).isEmpty();
+	}
+
+	@Nested
+	@SpringBootTest
+	@ActiveProfiles("reactive")
+	class Reactive {
+
+		@Autowired
+		private ApplicationContext context;
+
+		@Test
+		void contextLoads() {
+			assertThat(context.getBeanNamesForType(ReactiveProductController.class)).hasSize(1);
+			assertThat(context.getBeanNamesForType(ProductController.class)).isEmpty();
+			assertThat(context.getBeanNamesForType(ReactiveMongoTemplate.class)).hasSize(1);
+			assertThat(context.getBeanNamesForType(MongoTemplate.class)).hasSize(1);
+		}
 	}
 
 }
@@ -0,0 +1,44 @@
+package com.ecom.prodmanager.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitFilterTest {
+
+    private final AdaptiveConcurrencyLimiter readLimiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 0);
+    private final AdaptiveConcurrencyLimiter writeLimiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 0);
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(readLimiter, writeLimiter);
+
+    @Test
+    public void testRejectsOverLimitWithRetryAfter() throws Exception {
+        // A read is already in flight
+        assertThat(readLimiter.tryAcquire()).isTrue();
+
+        MockHttpServletResponse read = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/products/0123456789abcdef01234567"), read, new MockFilterChain());
+        assertThat(read.getStatus()).isEqualTo(503);
+        assertThat(read.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(read.getContentAsString()).contains("Too many concurrent reads");
+
+        // Writes have their own limit
+        MockHttpServletResponse write = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/products/"), write, new MockFilterChain());
+        assertThat(write.getStatus()).isEqualTo(200);
+        assertThat(writeLimiter.getInFlight()).isZero();
+    }
+
+    @Test
+    public void testAdminOperationsBypassLimiter() throws Exception {
+        assertThat(writeLimiter.tryAcquire()).isTrue();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/products/snapshots/catalog.snap/export"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(writeLimiter.getRejected()).isZero();
+    }
+}
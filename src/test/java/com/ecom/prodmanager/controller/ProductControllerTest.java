@@ -1,16 +1,39 @@
 package com.ecom.prodmanager.controller;
 
+import com.ecom.prodmanager.model.BulkItemResult;
+import com.ecom.prodmanager.model.BulkWriteResult;
+import com.ecom.prodmanager.model.CategoryStats;
+import com.ecom.prodmanager.model.MultiGetItem;
 import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductPage;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.ecom.prodmanager.model.SnapshotResult;
+import com.ecom.prodmanager.model.WriteBehindStatus;
+import com.ecom.prodmanager.repository.BulkheadFullException;
 import com.ecom.prodmanager.util.JsonUtil;
+import com.ecom.prodmanager.service.PreconditionFailedException;
+import com.ecom.prodmanager.service.ProductBulkService;
 import com.ecom.prodmanager.service.ProductService;
+import com.ecom.prodmanager.service.ProductValidationException;
+import com.ecom.prodmanager.service.ProductWriteBehindService;
+import com.ecom.prodmanager.service.WriteBehindQueueFullException;
+import com.ecom.prodmanager.snapshot.ProductSnapshotService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
@@ -18,13 +41,22 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -38,18 +70,30 @@ public class ProductControllerTest {
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductBulkService productBulkService;
+
+    @MockBean
+    private ProductSnapshotService productSnapshotService;
+
+    @MockBean
+    private ProductWriteBehindService productWriteBehindService;
+
     @InjectMocks
     private ProductController productController;
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
 
     @Test
     public void testGetProductById() throws Exception {
         // Mock the ProductService to return a document
         Product product = new Product(productId, "Wooden 2B Pencil", "Hexagonal cross-section with eraser", "Stationery", 15.0);
-        when(productService.getProductById(anyString())).thenReturn(Optional.of(product));
+        when(productService.getProductById(anyString(), eq(ProductFields.ALL))).thenReturn(Optional.of(product));
 
         // Perform GET request to the endpoint
         MvcResult result = mockMvc.perform(get("/api/products/{productId}", productId))
@@ -60,6 +104,27 @@ public class ProductControllerTest {
 
     }
 
+    @Test
+    public void testGetProductById_NotModified() throws Exception {
+        Product product = new Product(productId, "Wooden 2B Pencil", "Hexagonal cross-section with eraser", "Stationery", 15.0);
+        product.setVersion(1L);
+        when(productService.getProductById(productId, ProductFields.ALL)).thenReturn(Optional.of(product));
+        String etag = "\"" + productId + "-1\"";
+
+        mockMvc.perform(get("/api/products/{productId}", productId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        // A matching tag gets 304 without a body
+        mockMvc.perform(get("/api/products/{productId}", productId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/products/{productId}", productId).header(HttpHeaders.IF_NONE_MATCH, "\"" + productId + "-0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Wooden 2B Pencil"));
+    }
+
     @Test
     public void testGetAllProducts() throws Exception {
         // Prepare mock data
@@ -68,12 +133,14 @@ public class ProductControllerTest {
         mockProducts.add(new Product("0123456789ABCDEF01234500", "Product 2", "Description 2", "Category 2", 20.0));
 
         // Mock the ProductService to return the list of products
-        when(productService.getAllProducts()).thenReturn(mockProducts);
+        when(productService.getAllProducts(ProductFields.ALL)).thenReturn(mockProducts);
+        when(productService.getCatalogVersion()).thenReturn(26L);
 
         // Perform GET request to the endpoint
         mockMvc.perform(get("/api/products/all"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"all-1a\""))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].name").value("Product 1"))
                 .andExpect(jsonPath("$[0].description").value("Description 1"))
@@ -85,9 +152,278 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$[1].price").value(20.0));
 
         // Verify that the productService.getAllProducts() was called
-        verify(productService, times(1)).getAllProducts();
+        verify(productService, times(1)).getAllProducts(ProductFields.ALL);
+    }
+
+    @Test
+    public void testGetAllProducts_NotModified() throws Exception {
+        when(productService.getCatalogVersion()).thenReturn(26L);
+
+        // Revalidating only reads the catalog version, not the products
+        mockMvc.perform(get("/api/products/all").header(HttpHeaders.IF_NONE_MATCH, "\"all-1a\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"all-1a\""))
+                .andExpect(content().string(""));
+        verify(productService, never()).getAllProducts(any());
+    }
+
+
+    @Test
+    public void testStreamAllProducts() throws Exception {
+        // Mock the ProductService to return a stream of products
+        when(productService.streamAllProducts(ProductFields.ALL)).thenReturn(Stream.of(
+                new Product("0123456789ABCDEF01234567", "Product 1", "Description 1", "Category 1", 10.0),
+                new Product("0123456789ABCDEF01234500", "Product 2", "Description 2", "Category 2", 20.0)));
+
+        // Perform GET request asking for newline-delimited JSON
+        MvcResult asyncResult = mockMvc.perform(get("/api/products/all")
+                        .accept(ProductController.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ProductController.APPLICATION_NDJSON_VALUE))
+                .andReturn();
+
+        // Each product is written as a single JSON document on its own line
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(JsonUtil.fromJson(lines[0], Map.class).get("name")).isEqualTo("Product 1");
+        assertThat(JsonUtil.fromJson(lines[1], Map.class).get("name")).isEqualTo("Product 2");
+
+        verify(productService, times(1)).streamAllProducts(ProductFields.ALL);
+        verify(productService, never()).getAllProducts(any());
+    }
+
+    @Test
+    public void testGetProductById_SparseFields() throws Exception {
+        // Fields that were not selected come back as null and must be left out of the response
+        Product product = new Product();
+        product.set_id(new ObjectId(productId));
+        product.setName("Wooden 2B Pencil");
+        product.addField("color", "yellow");
+        when(productService.getProductById(productId, ProductFields.parse("name,color"))).thenReturn(Optional.of(product));
+
+        mockMvc.perform(get("/api/products/{productId}", productId).param("fields", "name, color"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._id").value(productId))
+                .andExpect(jsonPath("$.name").value("Wooden 2B Pencil"))
+                .andExpect(jsonPath("$.color").value("yellow"))
+                .andExpect(jsonPath("$.description").doesNotExist())
+                .andExpect(jsonPath("$.price").doesNotExist());
+
+        mockMvc.perform(get("/api/products/{productId}", productId).param("fields", "name,$where"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid field '$where'"));
+    }
+
+    @Test
+    public void testGetProductsByIds() throws Exception {
+        String missingId = "648bf631486b00c1f20b0289";
+        Product product = new Product(productId, "Wooden 2B Pencil", "Hexagonal cross-section with eraser", "Stationery", 15.0);
+        when(productService.getProductsByIds(List.of(productId, missingId), ProductFields.ALL))
+                .thenReturn(List.of(MultiGetItem.found(productId, product), MultiGetItem.notFound(missingId)));
+
+        mockMvc.perform(post("/api/products/by-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(List.of(productId, missingId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status").value("FOUND"))
+                .andExpect(jsonPath("$[0].product.name").value("Wooden 2B Pencil"))
+                .andExpect(jsonPath("$[1].id").value(missingId))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$[1].product").doesNotExist());
+    }
+
+    @Test
+    public void testGetProductsByIds_TooMany() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i <= ProductController.MAX_MULTI_GET_IDS; i++) {
+            ids.add(new ObjectId().toHexString());
+        }
+
+        mockMvc.perform(post("/api/products/by-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(ids)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("At most 500 ids can be requested at once"));
+        verify(productService, never()).getProductsByIds(anyList(), any());
+    }
+
+    @Test
+    public void testGetCategoryStats() throws Exception {
+        when(productService.getCategoryStats("Stationery"))
+                .thenReturn(Optional.of(new CategoryStats("Stationery", 2, 1.5, 2.5, 2.0, List.of("color"))));
+        when(productService.getCategoryStats("Garden")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/products/stats/{category}", "Stationery"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.averagePrice").value(2.0))
+                .andExpect(jsonPath("$.attributes[0]").value("color"));
+        mockMvc.perform(get("/api/products/stats/{category}", "Garden"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testAddProduct_WriteBehind() throws Exception {
+        Product product = new Product(productId, "Wooden 2B Pencil", "Hexagonal cross-section with eraser", "Stationery", 15.0);
+        WriteBehindStatus queued = WriteBehindStatus.queued("7d1f7c1e-5b7e-4a47-9f0b-3c1bb7c1a001", productId);
+        when(productWriteBehindService.isEnabled()).thenReturn(true);
+        when(productWriteBehindService.offer(any(Product.class))).thenReturn(Optional.of(queued));
+        when(productWriteBehindService.getStatus(queued.getTrackingId())).thenReturn(Optional.of(queued.written()));
+
+        mockMvc.perform(post("/api/products/")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(product)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/products/write-behind/" + queued.getTrackingId()))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.state").value("QUEUED"))
+                .andExpect(jsonPath("$.productId").value(productId));
+        verify(productService, never()).addProduct(any(Product.class));
+
+        mockMvc.perform(get("/api/products/write-behind/{trackingId}", queued.getTrackingId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("WRITTEN"));
+        mockMvc.perform(get("/api/products/write-behind/{trackingId}", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testAddProduct_WriteBehindSpillsOrRejects() throws Exception {
+        Product product = new Product(productId, "Wooden 2B Pencil", "Hexagonal cross-section with eraser", "Stationery", 15.0);
+        when(productWriteBehindService.isEnabled()).thenReturn(true);
+
+        // A spilled product is written synchronously
+        when(productWriteBehindService.offer(any(Product.class))).thenReturn(Optional.empty());
+        mockMvc.perform(post("/api/products/")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(product)))
+                .andExpect(status().isCreated());
+        verify(productService).addProduct(any(Product.class));
+
+        when(productWriteBehindService.offer(any(Product.class))).thenThrow(new WriteBehindQueueFullException(10));
+        mockMvc.perform(post("/api/products/")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(JsonUtil.toJson(product)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    public void testExportSnapshot() throws Exception {
+        Path file = Path.of("snapshots", "catalog.snap");
+        when(productSnapshotService.resolve("catalog.snap")).thenReturn(file);
+        when(productSnapshotService.exportSnapshot(file)).thenReturn(new SnapshotResult(file.toString(), 2, 0, 180, "0badf00d", 12));
+
+        mockMvc.perform(post("/api/products/snapshots/{name}/export", "catalog.snap"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products").value(2))
+                .andExpect(jsonPath("$.checksum").value("0badf00d"));
+    }
+
+    @Test
+    public void testImportSnapshot_MissingOrInvalidName() throws Exception {
+        when(productSnapshotService.resolve("missing.snap")).thenReturn(Path.of("snapshots", "missing.snap"));
+        when(productSnapshotService.resolve("..")).thenThrow(new IllegalArgumentException("Invalid snapshot name '..'"));
+
+        mockMvc.perform(post("/api/products/snapshots/{name}/import", "missing.snap"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/products/snapshots/{name}/import", ".."))
+                .andExpect(status().isBadRequest());
+        verify(productSnapshotService, never()).importSnapshot(any(), anyBoolean());
+    }
+
+    @Test
+    public void testGetAllProducts_RecordsResponseSize() throws Exception {
+        when(productService.getAllProducts(ProductFields.ALL)).thenReturn(List.of(
+                new Product(productId, "Product 1", "Description 1", "Category 1", 10.0)));
+
+        MvcResult result = mockMvc.perform(get("/api/products/all"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // The size is tagged with the URI pattern and content type, never with ids
+        DistributionSummary responseSize = meterRegistry.get("products.response.size")
+                .tags("uri", "/api/products/all", "type", MediaType.APPLICATION_JSON_VALUE)
+                .summary();
+        assertThat(responseSize.count()).isGreaterThanOrEqualTo(1);
+        assertThat(responseSize.max()).isGreaterThanOrEqualTo(result.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    public void testGetProductById_BulkheadFull_Returns503() throws Exception {
+        when(productService.getProductById(anyString(), any())).thenThrow(new BulkheadFullException(Duration.ofMillis(100)));
+
+        mockMvc.perform(get("/api/products/{productId}", productId))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value("No database capacity available within 100 ms"));
+    }
+
+    @Test
+    public void testGetProductPage() throws Exception {
+        // Mock the ProductService to return a page with a continuation token
+        Product product = new Product(productId, "Product 1", "Description 1", "Category 1", 10.0);
+        when(productService.getProductPage(ProductSortKey.PRICE, "token", 1, ProductFields.ALL))
+                .thenReturn(new ProductPage(List.of(product), "next-token"));
+
+        // Perform GET request to the endpoint
+        mockMvc.perform(get("/api/products/page")
+                        .param("sort", "price")
+                        .param("pageToken", "token")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products", hasSize(1)))
+                .andExpect(jsonPath("$.products[0].name").value("Product 1"))
+                .andExpect(jsonPath("$.nextPageToken").value("next-token"));
     }
 
+    @Test
+    public void testGetProductPage_InvalidParameters() throws Exception {
+        mockMvc.perform(get("/api/products/page").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products/page").param("sort", "name"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported sort 'name'"));
+
+        verify(productService, never()).getProductPage(any(), any(), anyInt(), any());
+    }
+
+
+    @Test
+    public void testSearchProducts() throws Exception {
+        // Mock the ProductService to return the matching products
+        Product product = new Product(productId, "Product 1", "Description 1", "Category 1", 10.0);
+        when(productService.searchProducts(any(ProductSearch.class), eq(ProductFields.ALL))).thenReturn(List.of(product));
+
+        // Perform GET request to the endpoint
+        mockMvc.perform(get("/api/products/search")
+                        .param("category", "Category 1")
+                        .param("minPrice", "5")
+                        .param("order", "desc")
+                        .param("attr.color", "red")
+                        .param("attr.size", "XL"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name").value("Product 1"));
+
+        // Verify the filters were passed on
+        ArgumentCaptor<ProductSearch> searchCaptor = ArgumentCaptor.forClass(ProductSearch.class);
+        verify(productService).searchProducts(searchCaptor.capture(), eq(ProductFields.ALL));
+        assertThat(searchCaptor.getValue().getCategory()).isEqualTo("Category 1");
+        assertThat(searchCaptor.getValue().getMinPrice()).isEqualTo(5.0);
+        assertThat(searchCaptor.getValue().getMaxPrice()).isNull();
+        assertThat(searchCaptor.getValue().getDirection()).isEqualTo(Sort.Direction.DESC);
+        assertThat(searchCaptor.getValue().getLimit()).isEqualTo(50);
+        assertThat(searchCaptor.getValue().getAttributes()).containsExactly(Map.entry("color", "red"), Map.entry("size", "XL"));
+    }
 
     @Test
     public void testAddProduct_ValidRequest() throws Exception {
@@ -129,6 +465,26 @@ public class ProductControllerTest {
 
     }
 
+    @Test
+    public void testBulkUpsertProducts() throws Exception {
+        // Mock the ProductBulkService to report one upserted and one invalid product
+        BulkWriteResult bulkResult = new BulkWriteResult(List.of(
+                BulkItemResult.upserted(0, productId),
+                BulkItemResult.invalid(1, null, Map.of("name", "Name is required"))));
+        when(productBulkService.upsertAll(any())).thenReturn(bulkResult);
+
+        // Perform the POST request with an NDJSON body
+        mockMvc.perform(post("/api/products/bulk")
+                        .contentType(ProductController.APPLICATION_NDJSON_VALUE)
+                        .content("{}\n{}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upserted").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("UPSERTED"))
+                .andExpect(jsonPath("$.items[0].id").value(productId))
+                .andExpect(jsonPath("$.items[1].errors.name").value("Name is required"));
+    }
+
     @Test
     public void testUpdateProduct() throws Exception {
         // Prepare mock data
@@ -167,6 +523,72 @@ public class ProductControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testUpdateProduct_IfMatch() throws Exception {
+        Product updatedProduct = new Product(productId, "Updated Product", "Updated Description", "Updated Category", 20.0);
+        updatedProduct.setVersion(2L);
+        when(productService.updateProduct(eq(productId), any(Product.class), eq(List.of("\"v1\""))))
+                .thenReturn(updatedProduct);
+
+        mockMvc.perform(put("/api/products/{productId}", productId)
+                        .header(HttpHeaders.IF_MATCH, "\"v1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(updatedProduct)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + productId + "-2\""));
+        verify(productService, never()).updateProduct(anyString(), any(Product.class));
+    }
+
+    @Test
+    public void testUpdateProduct_PreconditionFailed() throws Exception {
+        Product updatedProduct = new Product(productId, "Updated Product", "Updated Description", "Updated Category", 20.0);
+        when(productService.updateProduct(eq(productId), any(Product.class), anyList()))
+                .thenThrow(new PreconditionFailedException(productId));
+
+        mockMvc.perform(put("/api/products/{productId}", productId)
+                        .header(HttpHeaders.IF_MATCH, "\"v0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(updatedProduct)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").value("Product " + productId + " does not match If-Match"));
+    }
+
+    @Test
+    public void testPatchProduct() throws Exception {
+        // Mock the behavior of ProductService to return the patched product
+        Product patchedProduct = new Product(productId, "Product", "Description", "Category", 25.0);
+        patchedProduct.addField("color", "red");
+        when(productService.patchProduct(eq(productId), anyMap())).thenReturn(Optional.of(patchedProduct));
+
+        // Perform PATCH request to the endpoint
+        mockMvc.perform(patch("/api/products/{productId}", productId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\": 25, \"color\": \"red\", \"size\": null}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(25.0))
+                .andExpect(jsonPath("$.color").value("red"));
+
+        // Verify that null values are passed through so the service can remove those fields
+        Map<String, Object> expectedChanges = new HashMap<>();
+        expectedChanges.put("price", 25);
+        expectedChanges.put("color", "red");
+        expectedChanges.put("size", null);
+        verify(productService).patchProduct(productId, expectedChanges);
+    }
+
+    @Test
+    public void testPatchProduct_InvalidRequest() throws Exception {
+        // Mock the behavior of ProductService to reject the patch
+        when(productService.patchProduct(eq(productId), anyMap()))
+                .thenThrow(new ProductValidationException(Map.of("price", "Price must be a positive value")));
+
+        mockMvc.perform(patch("/api/products/{productId}", productId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\": -1}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.price").value("Price must be a positive value"));
+    }
+
     @Test
     public void testDeleteProduct() throws Exception {
         // Prepare mock data
@@ -179,4 +601,13 @@ public class ProductControllerTest {
         // Verify that the ProductService deleteProduct method was called with the correct productId
         verify(productService, times(1)).deleteProduct(productId);
     }
+
+    @Test
+    public void testDeleteProduct_IfMatch() throws Exception {
+        mockMvc.perform(delete("/api/products/{productId}", productId).header(HttpHeaders.IF_MATCH, "\"v1\", \"v2\""))
+                .andExpect(status().isNoContent());
+
+        verify(productService).deleteProduct(productId, List.of("\"v1\"", "\"v2\""));
+        verify(productService, never()).deleteProduct(productId);
+    }
 }
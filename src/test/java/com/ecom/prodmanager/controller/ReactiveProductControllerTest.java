@@ -0,0 +1,121 @@
+package com.ecom.prodmanager.controller;
+
+import com.ecom.prodmanager.config.ObjectMapperConfig;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.service.AttributeUsageTracker;
+import com.ecom.prodmanager.service.ReactiveProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveProductController.class)
+@Import(ObjectMapperConfig.class)
+@ActiveProfiles("reactive")
+public class ReactiveProductControllerTest {
+
+    private static final String ID = "0123456789abcdef01234567";
+
+    @MockBean
+    private ReactiveProductService productService;
+
+    @MockBean
+    private AttributeUsageTracker attributeUsageTracker;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    public void testGetProductById() {
+        when(productService.getProductById(ID, ProductFields.ALL)).thenReturn(Mono.just(new Product(ID, "Pencil", "HB", "Stationery", 1.5)));
+        when(productService.getProductById("abcdef999999990000000000", ProductFields.ALL)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/products/{id}", ID).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$._id").isEqualTo(ID)
+                .jsonPath("$.name").isEqualTo("Pencil");
+        webTestClient.get().uri("/api/products/{id}", "abcdef999999990000000000").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testGetAllProducts_TaggedWithCatalogVersion() {
+        when(productService.getCatalogVersion()).thenReturn(Mono.just(26L));
+        when(productService.getAllProducts(ProductFields.ALL)).thenReturn(Flux.just(
+                new Product(ID, "Product 1", "Description 1", "Category 1", 10.0)));
+
+        webTestClient.get().uri("/api/products/all")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"all-1a\"")
+                .expectBody().jsonPath("$[0].name").isEqualTo("Product 1");
+    }
+
+    @Test
+    public void testGetAllProducts_NotModified() {
+        when(productService.getCatalogVersion()).thenReturn(Mono.just(26L));
+
+        // Revalidating only reads the catalog version, not the products
+        webTestClient.get().uri("/api/products/all")
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"all-1a\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"all-1a\"")
+                .expectBody().isEmpty();
+        verify(productService, never()).getAllProducts(any());
+    }
+
+    @Test
+    public void testStreamAllProducts_AsNdjson() {
+        when(productService.getAllProducts(ProductFields.ALL)).thenReturn(Flux.just(
+                new Product(ID, "Product 1", "Description 1", "Category 1", 10.0),
+                new Product("0123456789abcdef01234500", "Product 2", "Description 2", "Category 2", 20.0)));
+
+        String body = webTestClient.get().uri("/api/products/all")
+                .accept(MediaType.parseMediaType(ProductController.APPLICATION_NDJSON_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        // One JSON document per line, like the servlet endpoint
+        assertThat(body.split("\n")).hasSize(2);
+        assertThat(body).contains("\"name\":\"Product 1\"").contains("\"name\":\"Product 2\"");
+    }
+
+    @Test
+    public void testAddProduct_InvalidRequestReportsFieldErrors() {
+        webTestClient.post().uri("/api/products/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"description\":\"HB\",\"category\":\"Stationery\",\"price\":1.5}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Name is required");
+        verify(productService, never()).addProduct(any());
+    }
+
+    @Test
+    public void testGetProductPage_InvalidLimit() {
+        webTestClient.get().uri("/api/products/page?limit=0").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("limit must be between 1 and 500");
+        verify(productService, never()).getProductPage(any(), anyString(), anyInt(), any());
+    }
+}
@@ -0,0 +1,107 @@
+package com.ecom.prodmanager.converter;
+
+import com.ecom.prodmanager.model.Product;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProductCodecTest {
+
+    private final CodecRegistry registry = CodecRegistries.fromRegistries(
+            CodecRegistries.fromProviders(new ProductCodec.Provider()),
+            MongoClientSettings.getDefaultCodecRegistry());
+    private final Codec<Product> productCodec = registry.get(Product.class);
+    private final Codec<Document> documentCodec = registry.get(Document.class);
+
+    private Product sampleProduct() {
+        Product product = new Product("0123456789abcdef01234567", "Pencil", "HB pencil", "Stationery", 1.5);
+        Map<String, Object> dimensions = new LinkedHashMap<>();
+        dimensions.put("length", 17.5);
+        dimensions.put("unit", "cm");
+        product.addField("color", "red");
+        product.addField("stock", 42);
+        product.addField("tags", List.of("wood", "office"));
+        product.addField("dimensions", dimensions);
+        product.addField("discontinued", null);
+        return product;
+    }
+
+    @Test
+    public void testEncode_SameShapeAsConverter() {
+        Product product = sampleProduct();
+
+        // Encode through the codec and through the Document-based converter
+        BsonDocument fromCodec = encode(productCodec, product);
+        BsonDocument fromConverter = encode(documentCodec, new ProductConverter.ProductToDocumentConverter().convert(product));
+
+        // Verify both produce the same document, including field order
+        assertThat(fromCodec).isEqualTo(fromConverter);
+        assertThat(fromCodec.keySet()).containsExactlyElementsOf(fromConverter.keySet());
+    }
+
+    @Test
+    public void testDecode_SameProductAsConverter() {
+        BsonDocument stored = encode(productCodec, sampleProduct());
+
+        // Decode through the codec and through the Document-based converter
+        Product fromCodec = productCodec.decode(new BsonDocumentReader(stored), DecoderContext.builder().build());
+        Document document = documentCodec.decode(new BsonDocumentReader(stored), DecoderContext.builder().build());
+        Product fromConverter = new ProductConverter.DocumentToProductConverter().convert(document);
+
+        // Verify the fixed and dynamic fields are identical
+        assertThat(fromCodec.get_id()).isEqualTo(fromConverter.get_id());
+        assertThat(fromCodec.getName()).isEqualTo(fromConverter.getName());
+        assertThat(fromCodec.getDescription()).isEqualTo(fromConverter.getDescription());
+        assertThat(fromCodec.getCategory()).isEqualTo(fromConverter.getCategory());
+        assertThat(fromCodec.getPrice()).isEqualTo(fromConverter.getPrice());
+        assertThat(fromCodec.getAdditionalFields()).isEqualTo(fromConverter.getAdditionalFields());
+        assertThat(fromCodec.getAdditionalFields().get("dimensions")).isInstanceOf(Document.class);
+        assertThat(fromCodec.getAdditionalFields()).containsEntry("discontinued", null);
+    }
+
+    @Test
+    public void testDecode_SharesCategoryAndFieldNameInstances() {
+        byte[] stored = new RawBsonDocument(sampleProduct(), productCodec).getByteBuffer().array();
+
+        // Two reads of the same bytes create separate strings, unless they are canonicalized
+        Product first = productCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(stored)), DecoderContext.builder().build());
+        Product second = productCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(stored)), DecoderContext.builder().build());
+
+        assertThat(second.getCategory()).isSameAs(first.getCategory());
+        assertThat(second.getAdditionalFields().keySet().iterator().next()).isSameAs(first.getAdditionalFields().keySet().iterator().next());
+        assertThat(second.getName()).isEqualTo(first.getName()).isNotSameAs(first.getName());
+    }
+
+    @Test
+    public void testGenerateIdIfAbsent() {
+        Product product = new Product();
+        assertThat(((ProductCodec) productCodec).documentHasId(product)).isFalse();
+
+        ((ProductCodec) productCodec).generateIdIfAbsentFromDocument(product);
+
+        assertThat(product.get_id()).isNotNull();
+    }
+
+    private static <T> BsonDocument encode(Codec<T> codec, T value) {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), value, EncoderContext.builder().build());
+        return document;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ecom.prodmanager.events;
+
+import com.ecom.prodmanager.model.ProductChangeEvent;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@EmbeddedKafka(partitions = 3, topics = ProductEventRelayTest.TOPIC)
+public class ProductEventRelayTest {
+
+    static final String TOPIC = "product-events-test";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private Consumer<String, String> consumer;
+
+    @BeforeEach
+    public void setUp(EmbeddedKafkaBroker broker) {
+        Map<String, Object> producerProperties = KafkaTestUtils.producerProps(broker);
+        producerProperties.put("enable.idempotence", true);
+        kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProperties, new StringSerializer(), new StringSerializer()));
+
+        Map<String, Object> consumerProperties = KafkaTestUtils.consumerProps("relay-test", "false", broker);
+        consumerProperties.put("auto.offset.reset", "earliest");
+        consumer = new DefaultKafkaConsumerFactory<>(consumerProperties, new StringDeserializer(), new StringDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        consumer.close();
+        kafkaTemplate.destroy();
+    }
+
+    @Test
+    public void testRelayBatch_PublishesKeyedByProductAndClearsOutbox() {
+        // Two events for one product and one for another, oldest first
+        List<ProductChangeEvent> events = List.of(
+                new ProductChangeEvent("0123456789abcdef01234567", ProductChangeEvent.Type.UPSERTED, "{\"price\":1.0}"),
+                new ProductChangeEvent("0123456789abcdef01234500", ProductChangeEvent.Type.UPSERTED, "{\"price\":5.0}"),
+                new ProductChangeEvent("0123456789abcdef01234567", ProductChangeEvent.Type.DELETED, null));
+        when(mongoTemplate.find(any(Query.class), eq(ProductChangeEvent.class), eq(ProductEventOutbox.COLLECTION))).thenReturn(events);
+
+        ProductEventRelay relay = new ProductEventRelay(mongoTemplate, kafkaTemplate, TOPIC, 10, Duration.ofSeconds(10), true);
+        int relayed = relay.relayBatch();
+
+        // Verify the events reached the broker keyed by product id, in order per product
+        assertThat(relayed).isEqualTo(3);
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (records.size() < 3 && System.currentTimeMillis() < deadline) {
+            ConsumerRecords<String, String> polled = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1), 3);
+            polled.forEach(records::add);
+        }
+        assertThat(records).hasSize(3);
+        List<String> firstProduct = records.stream()
+                .filter(record -> record.key().equals("0123456789abcdef01234567"))
+                .map(record -> new String(record.headers().lastHeader("event-type").value()))
+                .toList();
+        assertThat(firstProduct).containsExactly("UPSERTED", "DELETED");
+
+        // Verify the published events were removed from the outbox
+        ArgumentCaptor<Query> removeCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removeCaptor.capture(), eq(ProductEventOutbox.COLLECTION));
+        assertThat(removeCaptor.getValue().getQueryObject().toJson()).contains(events.get(0).getId().toHexString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRelayBatch_KeepsLaterEventsOfFailedProduct() {
+        List<ProductChangeEvent> events = List.of(
+                new ProductChangeEvent("0123456789abcdef01234567", ProductChangeEvent.Type.UPSERTED, "{\"price\":1.0}"),
+                new ProductChangeEvent("0123456789abcdef01234500", ProductChangeEvent.Type.UPSERTED, "{\"price\":5.0}"),
+                new ProductChangeEvent("0123456789abcdef01234567", ProductChangeEvent.Type.DELETED, null));
+        when(mongoTemplate.find(any(Query.class), eq(ProductChangeEvent.class), eq(ProductEventOutbox.COLLECTION))).thenReturn(events);
+        KafkaTemplate<String, String> failingTemplate = mock(KafkaTemplate.class);
+        when(failingTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("Broker unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        ProductEventRelay relay = new ProductEventRelay(mongoTemplate, failingTemplate, TOPIC, 10, Duration.ofSeconds(10), true);
+        int relayed = relay.relayBatch();
+
+        // The first product's delete was acknowledged but stays, so it is sent again after the failed upsert
+        assertThat(relayed).isZero();
+        ArgumentCaptor<Query> removeCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removeCaptor.capture(), eq(ProductEventOutbox.COLLECTION));
+        assertThat(removeCaptor.getValue().getQueryObject().get("_id", Document.class).getList("$in", Object.class))
+                .containsExactly(events.get(1).getId());
+    }
+
+    @Test
+    public void testRelay_DisabledDoesNothing() {
+        ProductEventRelay relay = new ProductEventRelay(mongoTemplate, kafkaTemplate, TOPIC, 10, Duration.ofSeconds(10), false);
+
+        relay.relay();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecom.prodmanager.events;
+
+import com.ecom.prodmanager.model.BulkItemResult;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.service.ProductBulkService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductIngestListenerTest {
+
+    private static final String ID = "0123456789abcdef01234567";
+
+    @Mock
+    private ProductBulkService productBulkService;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProductIngestListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        listener = new ProductIngestListener(productBulkService, kafkaTemplate, new ObjectMapper(), meterRegistry, "ingest.DLT");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIngest_CoalescesByIdAndWritesOnce() {
+        when(productBulkService.validate(any())).thenReturn(Map.of());
+        when(productBulkService.upsertBatch(anyList())).thenReturn(List.of(BulkItemResult.upserted(0, ID), BulkItemResult.upserted(1, null)));
+
+        listener.ingest(List.of(
+                record(0, ID, product(null, 1.0)),
+                record(1, null, product("fedcba9876543210fedcba98", 2.0)),
+                record(2, ID, product(null, 3.0))));
+
+        ArgumentCaptor<List<Product>> batch = ArgumentCaptor.forClass(List.class);
+        verify(productBulkService).upsertBatch(batch.capture());
+        assertThat(batch.getValue()).extracting(product -> product.get_id().toHexString())
+                .containsExactly(ID, "fedcba9876543210fedcba98");
+        // The newest record for the key wins
+        assertThat(batch.getValue().get(0).getPrice()).isEqualTo(3.0);
+        verifyNoInteractions(kafkaTemplate);
+        assertThat(meterRegistry.counter("products.ingest.records", "outcome", "written").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("products.ingest.records", "outcome", "coalesced").count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIngest_DeadLettersMalformedInvalidAndFailedRecords() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        when(productBulkService.validate(any())).thenAnswer(invocation ->
+                invocation.<Product>getArgument(0).getPrice() < 0 ? Map.of("price", "must be greater than 0") : Map.of());
+        when(productBulkService.upsertBatch(anyList())).thenReturn(List.of(BulkItemResult.failed(0, ID, "duplicate key")));
+
+        listener.ingest(List.of(
+                record(0, "a", "{not json"),
+                record(1, "b", product(null, -1.0)),
+                record(2, ID, product(null, 1.0))));
+
+        ArgumentCaptor<ProducerRecord<String, String>> deadLetters = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(3)).send(deadLetters.capture());
+        assertThat(deadLetters.getAllValues()).extracting(ProducerRecord::key).containsExactly("a", "b", ID);
+        assertThat(deadLetters.getAllValues()).allMatch(deadLetter -> deadLetter.topic().equals("ingest.DLT"));
+        assertThat(new String(deadLetters.getAllValues().get(1).headers().lastHeader("dlt-original-offset").value())).isEqualTo("1");
+        assertThat(meterRegistry.counter("products.ingest.records", "outcome", "dead_lettered").count()).isEqualTo(3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIngest_FailedDeadLetterIsNotCounted() {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unreachable")));
+
+        // The batch fails so that the record is redelivered, and nothing was dead-lettered yet
+        assertThatThrownBy(() -> listener.ingest(List.of(record(0, "a", "{not json"))))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(meterRegistry.counter("products.ingest.records", "outcome", "dead_lettered").count()).isZero();
+    }
+
+    @Test
+    public void testIngest_WriteFailurePropagatesForRedelivery() {
+        when(productBulkService.validate(any())).thenReturn(Map.of());
+        when(productBulkService.upsertBatch(anyList())).thenThrow(new DataAccessResourceFailureException("Mongo unreachable"));
+
+        assertThatThrownBy(() -> listener.ingest(List.of(record(0, ID, product(null, 1.0)))))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String key, String value) {
+        return new ConsumerRecord<>("product-ingest", 0, offset, key, value);
+    }
+
+    private static String product(String id, double price) {
+        return (id == null ? "{" : "{\"_id\":\"" + id + "\",")
+                + "\"name\":\"Pencil\",\"description\":\"HB\",\"category\":\"Stationery\",\"price\":" + price + "}";
+    }
+}
@@ -1,10 +1,15 @@
 package com.ecom.prodmanager.integration;
 
+import com.ecom.prodmanager.config.ProductIndexInitializer;
+import com.ecom.prodmanager.model.PageToken;
 import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
 import com.ecom.prodmanager.repository.ProductRepository;
 
 import com.ecom.prodmanager.service.ProductService;
 import com.ecom.prodmanager.util.JsonUtil;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.*;
@@ -13,6 +18,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
@@ -51,6 +57,9 @@ public class ProductIntegrationTest {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductIndexInitializer indexInitializer;
+
     public void addTestProduct() {
         // Clear the product with the ID of a specific product
         productRepository.deleteById(prodId);
@@ -216,6 +225,58 @@ public class ProductIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testSearchProducts_ByCategoryAndPriceRange() throws Exception {
+        addTestProduct();
+        productRepository.save(new Product("0123456789ABCDEF01234500", "Product 2", "Description 2", "Test Category", 20.0));
+        productRepository.save(new Product("0123456789ABCDEF01234501", "Product 3", "Description 3", "Other Category", 15.0));
+
+        mockMvc.perform(get("/api/products/search")
+                        .param("category", "Test Category")
+                        .param("minPrice", "5")
+                        .param("maxPrice", "25")
+                        .param("order", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].name").value(Matchers.contains("Product 2", "Test Product")));
+    }
 
+    @Test
+    public void testSearchProducts_NeverCollectionScans() {
+        indexInitializer.ensureIndexes();
+
+        List<ProductSearch> searches = List.of(
+                new ProductSearch("Test Category", null, null, Sort.Direction.ASC, 50),
+                new ProductSearch("Test Category", 5.0, 25.0, Sort.Direction.DESC, 50),
+                new ProductSearch(null, 5.0, null, Sort.Direction.ASC, 50),
+                new ProductSearch(null, null, 25.0, Sort.Direction.DESC, 50));
+
+        for (ProductSearch search : searches) {
+            // The winning plan must use an index for both the filter and the price order
+            String winningPlan = productRepository.explainSearch(search)
+                    .get("queryPlanner", Document.class)
+                    .get("winningPlan", Document.class)
+                    .toJson();
+            assertThat(winningPlan).contains("IXSCAN").doesNotContain("COLLSCAN").doesNotContain("\"SORT\"");
+        }
+    }
 
+    @Test
+    public void testGetProductPage_ReadsPagesFromIndex() {
+        indexInitializer.ensureIndexes();
+        Product last = new Product(prodId, "Test Product", "Test Description", "Test Category", 10.0);
+        Product unpriced = new Product(prodId, "Test Product", "Test Description", null, 10.0);
+        unpriced.setPrice(null);
+
+        for (ProductSortKey sortKey : ProductSortKey.values()) {
+            // First pages, later pages and pages after a product without the sort value alike
+            for (PageToken after : new PageToken[]{null, PageToken.after(sortKey, last), PageToken.after(sortKey, unpriced)}) {
+                String winningPlan = productRepository.explainPage(sortKey, after, 50)
+                        .get("queryPlanner", Document.class)
+                        .get("winningPlan", Document.class)
+                        .toJson();
+                assertThat(winningPlan).as(sortKey + (after == null ? " first page" : " after " + after.getLastValue())).contains("IXSCAN")
+                        .doesNotContain("COLLSCAN").doesNotContain("\"SORT\"");
+            }
+        }
+    }
 }
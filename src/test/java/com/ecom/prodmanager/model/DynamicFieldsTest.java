@@ -0,0 +1,69 @@
+package com.ecom.prodmanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DynamicFieldsTest {
+
+    @Test
+    public void testBehavesLikeAMapInInsertionOrder() {
+        DynamicFields fields = new DynamicFields();
+        assertThat(fields).isEmpty();
+
+        fields.put("color", "red");
+        fields.put("size", 42);
+        fields.put("discontinued", null);
+        assertThat(fields.put("color", "blue")).isEqualTo("red");
+
+        assertThat(fields).hasSize(3).containsEntry("color", "blue").containsEntry("discontinued", null);
+        assertThat(fields.keySet()).containsExactly("color", "size", "discontinued");
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("color", "blue");
+        expected.put("size", 42);
+        expected.put("discontinued", null);
+        assertThat(fields).isEqualTo(expected);
+        assertThat(fields.hashCode()).isEqualTo(expected.hashCode());
+
+        assertThat(fields.remove("color")).isEqualTo("blue");
+        assertThat(fields.keySet()).containsExactly("size", "discontinued");
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        DynamicFields fields = new DynamicFields();
+        fields.put("a", 1);
+        fields.put("b", 2);
+        fields.put("c", 3);
+
+        Iterator<Map.Entry<String, Object>> iterator = fields.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if ("b".equals(iterator.next().getKey())) {
+                iterator.remove();
+            }
+        }
+        assertThat(fields.keySet()).containsExactly("a", "c");
+
+        fields.entrySet().iterator().next().setValue(10);
+        assertThat(fields).containsEntry("a", 10);
+    }
+
+    @Test
+    public void testSpillsPastInlineCapacity() {
+        DynamicFields fields = new DynamicFields();
+        Map<String, Object> expected = new HashMap<>();
+        for (int i = 0; i <= DynamicFields.MAX_INLINE_ENTRIES; i++) {
+            fields.put("attribute" + i, i);
+            expected.put("attribute" + i, i);
+        }
+
+        assertThat(fields).isEqualTo(expected);
+        assertThat(fields.get("attribute0")).isEqualTo(0);
+        assertThat(fields.remove("attribute3")).isEqualTo(3);
+        assertThat(fields).hasSize(DynamicFields.MAX_INLINE_ENTRIES);
+    }
+}
@@ -0,0 +1,115 @@
+package com.ecom.prodmanager.repository;
+
+import com.ecom.prodmanager.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductRepositoryBulkheadTest {
+
+    private static final String ID = "0123456789abcdef01234567";
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProductRepository guardedRepository;
+
+    private MongoOperations guardedTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        ProductRepositoryBulkhead bulkhead = new ProductRepositoryBulkhead(meterRegistry, 1, Duration.ofMillis(50));
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(productRepository);
+        proxyFactory.addAspect(bulkhead);
+        guardedRepository = proxyFactory.getProxy();
+        AspectJProxyFactory templateProxyFactory = new AspectJProxyFactory(mongoTemplate);
+        templateProxyFactory.addAspect(bulkhead);
+        guardedTemplate = templateProxyFactory.getProxy();
+    }
+
+    @Test
+    public void testCallsPassThroughAndReleaseTheirPermit() {
+        Product product = new Product(ID, "Pencil", "HB", "Stationery", 1.5);
+        when(productRepository.findById(ID)).thenReturn(Optional.of(product));
+
+        // A single permit is enough for sequential calls
+        assertThat(guardedRepository.findById(ID)).contains(product);
+        assertThat(guardedRepository.findById(ID)).contains(product);
+        assertThat(meterRegistry.get("products.bulkhead.available").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("products.bulkhead.queue").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGuardsTemplateCallsWithoutTakingASecondPermit() throws Exception {
+        Product product = new Product(ID, "Pencil", "HB", "Stationery", 1.5);
+        when(mongoTemplate.findById(ID, Product.class)).thenReturn(product);
+        // A repository method that uses the template, with the only permit already taken by itself
+        when(productRepository.findById(ID)).thenAnswer(invocation -> Optional.ofNullable(guardedTemplate.findById(ID, Product.class)));
+
+        assertThat(guardedRepository.findById(ID)).contains(product);
+        assertThat(guardedTemplate.findById(ID, Product.class)).isSameAs(product);
+        assertThat(meterRegistry.get("products.bulkhead.queue").timer().count()).isEqualTo(2);
+
+        // Template calls queue for the same permits as repository calls
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mongoTemplate.count(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            inCall.countDown();
+            release.await();
+            return 0L;
+        });
+        CompletableFuture<Long> holder = CompletableFuture.supplyAsync(() -> guardedTemplate.count(new Query(), Product.class));
+        assertThat(inCall.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> guardedRepository.findById(ID)).isInstanceOf(BulkheadFullException.class);
+        release.countDown();
+        assertThat(holder.get(5, TimeUnit.SECONDS)).isZero();
+    }
+
+    @Test
+    public void testRejectsWhenNoPermitWithinMaxWait() throws Exception {
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productRepository.findById(ID)).thenAnswer(invocation -> {
+            inCall.countDown();
+            release.await();
+            return Optional.empty();
+        });
+
+        // Hold the only permit in another thread
+        CompletableFuture<Optional<Product>> holder = CompletableFuture.supplyAsync(() -> guardedRepository.findById(ID));
+        assertThat(inCall.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> guardedRepository.deleteById(ID)).isInstanceOf(BulkheadFullException.class);
+        verify(productRepository, never()).deleteById(ID);
+        assertThat(meterRegistry.get("products.bulkhead.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(holder.get(5, TimeUnit.SECONDS)).isEmpty();
+        guardedRepository.deleteById(ID);
+        verify(productRepository).deleteById(ID);
+    }
+}
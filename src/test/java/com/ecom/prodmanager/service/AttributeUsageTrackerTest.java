@@ -0,0 +1,107 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.AttributeUsage;
+import com.ecom.prodmanager.model.Product;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AttributeUsageTrackerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @Test
+    public void testRecordAndUsage() {
+        AttributeUsageTracker tracker = new AttributeUsageTracker(mongoTemplate, 2, 10, 100, false);
+
+        tracker.record(Set.of("color", "size"));
+        tracker.record(Set.of("color"));
+
+        // Verify the hottest attribute comes first
+        List<AttributeUsage> usage = tracker.getUsage();
+        assertThat(usage).extracting(AttributeUsage::getAttribute).containsExactly("color", "size");
+        assertThat(usage).extracting(AttributeUsage::getFilterCount).containsExactly(2L, 1L);
+        assertThat(tracker.getRecommendations()).containsExactly("color");
+    }
+
+    @Test
+    public void testRecord_CapsTrackedAttributes() {
+        AttributeUsageTracker tracker = new AttributeUsageTracker(mongoTemplate, 1, 10, 2, false);
+
+        tracker.record(List.of("a", "b", "c"));
+        tracker.record(List.of("a"));
+
+        assertThat(tracker.getUsage()).extracting(AttributeUsage::getAttribute).containsExactlyInAnyOrder("a", "b");
+    }
+
+    @Test
+    public void testCreateRecommendedIndexes() {
+        when(mongoTemplate.indexOps(Product.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(Index.class))).thenReturn("attr_color_price", "attr_size_price");
+        AttributeUsageTracker tracker = new AttributeUsageTracker(mongoTemplate, 1, 1, 100, false);
+        tracker.record(List.of("color", "color", "size"));
+
+        // Only one attribute index is allowed, so only the hottest attribute gets one
+        List<String> created = tracker.createRecommendedIndexes();
+
+        assertThat(created).containsExactly("attr_color_price");
+        ArgumentCaptor<Index> indexCaptor = ArgumentCaptor.forClass(Index.class);
+        verify(indexOperations).ensureIndex(indexCaptor.capture());
+        assertThat(indexCaptor.getValue().getIndexKeys()).isEqualTo(new Document("color", 1).append("price", 1));
+        assertThat(tracker.getUsage().get(0).isIndexed()).isTrue();
+        assertThat(tracker.getRecommendations()).isEmpty();
+    }
+
+    @Test
+    public void testApplyRecommendations_DisabledByDefault() {
+        AttributeUsageTracker tracker = new AttributeUsageTracker(mongoTemplate, 1, 10, 100, false);
+        when(mongoTemplate.indexOps(Product.class)).thenReturn(indexOperations);
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(attributeIndex("size")));
+        tracker.record(List.of("color", "size"));
+
+        tracker.applyRecommendations();
+
+        // Existing indexes are still picked up, but no index is created
+        verify(indexOperations, never()).ensureIndex(any());
+        assertThat(tracker.getUsage()).filteredOn(AttributeUsage::isIndexed).extracting(AttributeUsage::getAttribute).containsExactly("size");
+        assertThat(tracker.getRecommendations()).containsExactly("color");
+    }
+
+    @Test
+    public void testRefreshIndexedAttributes_ForgetsDroppedIndexes() {
+        AttributeUsageTracker tracker = new AttributeUsageTracker(mongoTemplate, 1, 10, 100, false);
+        when(mongoTemplate.indexOps(Product.class)).thenReturn(indexOperations);
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(attributeIndex("color"))).thenReturn(List.of());
+        tracker.record(List.of("color"));
+
+        tracker.refreshIndexedAttributes();
+        assertThat(tracker.getRecommendations()).isEmpty();
+
+        tracker.refreshIndexedAttributes();
+        assertThat(tracker.getRecommendations()).containsExactly("color");
+    }
+
+    private static IndexInfo attributeIndex(String attribute) {
+        return IndexInfo.indexInfoOf(new Document("name", "attr_" + attribute + "_price")
+                .append("key", new Document(attribute, 1).append("price", 1)));
+    }
+}
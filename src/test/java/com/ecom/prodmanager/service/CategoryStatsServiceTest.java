@@ -0,0 +1,186 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.CategoryStats;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.repository.ProductRepository;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CategoryStatsServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private CategoryStatsService categoryStatsService;
+
+    @BeforeEach
+    public void setUp() {
+        categoryStatsService = new CategoryStatsService(mongoTemplate, productRepository, true);
+    }
+
+    @Test
+    public void testRecordAddedProduct() {
+        Product product = new Product("0123456789abcdef01234567", "Pencil", "HB", "Stationery", 1.5);
+        product.addField("color", "red");
+
+        categoryStatsService.record(null, product);
+
+        // One upsert incrementing the counters and widening the price range
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CategoryStatsService.COLLECTION));
+        Document updateObject = update.getValue().getUpdateObject();
+        assertThat(updateObject.get("$inc", Document.class))
+                .containsEntry("count", 1L)
+                .containsEntry("priceCount", 1L)
+                .containsEntry("priceSum", 1.5)
+                .containsEntry("attributes.color", 1L);
+        assertThat(updateObject.get("$min", Document.class)).containsEntry("minPrice", 1.5);
+        assertThat(updateObject.get("$max", Document.class)).containsEntry("maxPrice", 1.5);
+    }
+
+    @Test
+    public void testRecordCategoryMoveOfCheapestProduct() {
+        Product before = new Product("0123456789abcdef01234567", "Pencil", "HB", "Stationery", 1.5);
+        before.addField("color", "red");
+        Product after = new Product("0123456789abcdef01234567", "Pencil", "HB", "Office", 1.5);
+        Document stationery = new Document("_id", "Stationery").append("count", 3L)
+                .append("minPrice", 2.0).append("maxPrice", 9.0)
+                .append("attributes", new Document("color", 0L).append("size", 2L));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Document.class), anyString()))
+                .thenAnswer(invocation -> "Stationery".equals(((Query) invocation.getArgument(0)).getQueryObject().get("_id")) ? stationery : null);
+        when(mongoTemplate.findOne(any(Query.class), eq(Product.class)))
+                .thenReturn(new Product("0123456789abcdef01234500", "Pen", "Blue", "Stationery", 2.0));
+
+        categoryStatsService.record(before, after);
+
+        // The old category loses the product, its emptied attribute key and its min price, which is
+        // re-read through the price index; the max price was not affected
+        ArgumentCaptor<Query> priceQuery = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).findOne(priceQuery.capture(), eq(Product.class));
+        assertThat(priceQuery.getValue().getSortObject()).isEqualTo(new Document("price", 1));
+        ArgumentCaptor<Update> cleanUp = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), cleanUp.capture(), eq(CategoryStatsService.COLLECTION));
+        assertThat(cleanUp.getValue().getUpdateObject().get("$unset", Document.class)).containsOnlyKeys("attributes.color");
+        assertThat(cleanUp.getValue().getUpdateObject().get("$set", Document.class)).isEqualTo(new Document("minPrice", 2.0));
+    }
+
+    @Test
+    public void testRecordRemovedLastProductDropsCategory() {
+        Product product = new Product("0123456789abcdef01234567", "Pencil", "HB", "Stationery", 1.5);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Document.class), anyString()))
+                .thenReturn(new Document("_id", "Stationery").append("count", 0L));
+
+        categoryStatsService.record(product, null);
+
+        verify(mongoTemplate).remove(any(Query.class), eq(CategoryStatsService.COLLECTION));
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(Product.class));
+    }
+
+    @Test
+    public void testRebuildAndRead() {
+        Product pencil = new Product("0123456789abcdef01234567", "Pencil", "HB", "Stationery", 1.5);
+        pencil.addField("color", "red");
+        Product pen = new Product("0123456789abcdef01234500", "Pen", "Blue", "Stationery", 2.5);
+        when(productRepository.streamAllBy(ProductFields.ALL)).thenReturn(Stream.of(pencil, pen));
+        MongoCollection<Document> rebuilt = mockRebuildCollection();
+
+        assertThat(categoryStatsService.rebuild()).isEqualTo(1);
+
+        // Written next to the live stats and then renamed over them
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Document>> documents = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<RenameCollectionOptions> options = ArgumentCaptor.forClass(RenameCollectionOptions.class);
+        verify(mongoTemplate).insert(documents.capture(), eq(CategoryStatsService.REBUILD_COLLECTION));
+        verify(rebuilt).renameCollection(eq(new MongoNamespace("products", CategoryStatsService.COLLECTION)), options.capture());
+        assertThat(options.getValue().isDropTarget()).isTrue();
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(CategoryStatsService.COLLECTION));
+
+        // The stored document is read back as the stats the endpoint returns
+        when(mongoTemplate.findById("Stationery", Document.class, CategoryStatsService.COLLECTION)).thenReturn(documents.getValue().get(0));
+        CategoryStats stats = categoryStatsService.getStats("Stationery").orElseThrow();
+        assertThat(stats.getCount()).isEqualTo(2);
+        assertThat(stats.getMinPrice()).isEqualTo(1.5);
+        assertThat(stats.getMaxPrice()).isEqualTo(2.5);
+        assertThat(stats.getAveragePrice()).isEqualTo(2.0);
+        assertThat(stats.getAttributes()).containsExactly("color");
+    }
+
+    @Test
+    public void testRebuildReappliesChangesRecordedMeanwhile() {
+        Product pencil = new Product("0123456789abcdef01234567", "Pencil", "HB", "Stationery", 1.5);
+        Product eraser = new Product("0123456789abcdef01234500", "Eraser", "White", "Stationery", 0.5);
+        // The eraser is added while the products are being read, after the cursor has passed it
+        when(productRepository.streamAllBy(ProductFields.ALL)).thenReturn(Stream.of(pencil)
+                .peek(product -> categoryStatsService.record(null, eraser)));
+        MongoCollection<Document> rebuilt = mockRebuildCollection();
+
+        categoryStatsService.rebuild();
+
+        InOrder inOrder = inOrder(mongoTemplate, rebuilt);
+        inOrder.verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CategoryStatsService.COLLECTION));
+        inOrder.verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CategoryStatsService.REBUILD_COLLECTION));
+        inOrder.verify(rebuilt).renameCollection(any(MongoNamespace.class), any(RenameCollectionOptions.class));
+
+        // Once the rebuild is done, changes only go to the live stats
+        categoryStatsService.record(null, eraser);
+        verify(mongoTemplate, times(1)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CategoryStatsService.REBUILD_COLLECTION));
+    }
+
+    @Test
+    public void testRebuildIfMissing() {
+        when(mongoTemplate.exists(any(Query.class), eq(CategoryStatsService.COLLECTION))).thenReturn(false);
+        when(mongoTemplate.exists(any(Query.class), eq(Product.class))).thenReturn(true);
+        when(productRepository.streamAllBy(ProductFields.ALL)).thenReturn(Stream.empty());
+        MongoCollection<Document> rebuilt = mockRebuildCollection();
+
+        assertThat(categoryStatsService.rebuildIfMissing()).isTrue();
+        verify(rebuilt).renameCollection(any(MongoNamespace.class), any(RenameCollectionOptions.class));
+
+        // Existing stats are kept, they are maintained by the writes from here on
+        when(mongoTemplate.exists(any(Query.class), eq(CategoryStatsService.COLLECTION))).thenReturn(true);
+        assertThat(categoryStatsService.rebuildIfMissing()).isFalse();
+        verify(productRepository, times(1)).streamAllBy(ProductFields.ALL);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MongoCollection<Document> mockRebuildCollection() {
+        MongoCollection<Document> rebuilt = mock(MongoCollection.class);
+        MongoDatabase database = mock(MongoDatabase.class);
+        when(database.getName()).thenReturn("products");
+        when(mongoTemplate.getDb()).thenReturn(database);
+        when(mongoTemplate.createCollection(CategoryStatsService.REBUILD_COLLECTION)).thenReturn(rebuilt);
+        return rebuilt;
+    }
+}
@@ -0,0 +1,203 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.events.ProductEventOutbox;
+import com.ecom.prodmanager.model.BulkItemResult;
+import com.ecom.prodmanager.model.BulkWriteResult;
+import com.ecom.prodmanager.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.Validation;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductBulkServiceTest {
+
+    private static final String VALID_PRODUCT = "{\"name\":\"Pencil\",\"description\":\"HB\",\"category\":\"Stationery\",\"price\":1.5,\"color\":\"red\"}";
+    private static final String INVALID_PRODUCT = "{\"name\":\"Pencil\",\"category\":\"Stationery\",\"price\":-1}";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private ProductEventOutbox productEventOutbox;
+
+    @Mock
+    private CategoryStatsService categoryStatsService;
+
+    private ProductBulkService productBulkService;
+
+    @BeforeEach
+    public void setUp() {
+        productBulkService = new ProductBulkService(mongoTemplate, Validation.buildDefaultValidatorFactory().getValidator(),
+                new ProductCache(100, 0, Duration.ofMinutes(5), Duration.ofSeconds(5)), productEventOutbox, categoryStatsService,
+                mock(CatalogVersion.class), new ObjectMapper(), 2);
+    }
+
+    @Test
+    public void testUpsertAll_JsonArrayInBatches() throws Exception {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+
+        // Three valid products with a batch size of two
+        String body = "[" + VALID_PRODUCT + "," + VALID_PRODUCT + "," + VALID_PRODUCT + "]";
+        BulkWriteResult result = productBulkService.upsertAll(stream(body));
+
+        // Verify all products were written in two bulk writes
+        assertThat(result.getUpserted()).isEqualTo(3);
+        assertThat(result.getRejected()).isZero();
+        assertThat(result.getItems()).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(result.getItems()).allSatisfy(item -> assertThat(item.getId()).isNotNull());
+        verify(bulkOperations, times(3)).replaceOne(any(Query.class), any(Product.class), any(FindAndReplaceOptions.class));
+        verify(bulkOperations, times(2)).execute();
+    }
+
+    @Test
+    public void testUpsertAll_NdjsonWithInvalidProduct() throws Exception {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+
+        String body = VALID_PRODUCT + "\n" + INVALID_PRODUCT + "\n" + VALID_PRODUCT + "\n";
+        BulkWriteResult result = productBulkService.upsertAll(stream(body));
+
+        // Verify the invalid product is reported with per-field errors and the others are written
+        assertThat(result.getUpserted()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        BulkItemResult invalid = result.getItems().get(1);
+        assertThat(invalid.getIndex()).isEqualTo(1);
+        assertThat(invalid.getStatus()).isEqualTo(BulkItemResult.Status.INVALID);
+        assertThat(invalid.getErrors())
+                .containsEntry("description", "Description is required")
+                .containsEntry("price", "Price must be a positive value");
+        assertThat(result.getItems().get(2).getStatus()).isEqualTo(BulkItemResult.Status.UPSERTED);
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpsertAll_PartialWriteFailure() throws Exception {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+        BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1);
+        when(bulkOperations.execute()).thenThrow(new BulkOperationException("bulk write failed",
+                new MongoBulkWriteException(com.mongodb.bulk.BulkWriteResult.unacknowledged(), List.of(error), null, new ServerAddress(), Set.of())));
+
+        BulkWriteResult result = productBulkService.upsertAll(stream("[" + VALID_PRODUCT + "," + VALID_PRODUCT + "]"));
+
+        // Only the item reported by Mongo is marked as failed
+        assertThat(result.getItems()).extracting(BulkItemResult::getStatus)
+                .containsExactly(BulkItemResult.Status.UPSERTED, BulkItemResult.Status.FAILED);
+        assertThat(result.getItems().get(1).getErrors()).containsEntry("error", "duplicate key");
+
+        // Only the upserted product gets a change event
+        ArgumentCaptor<List<Product>> eventCaptor = ArgumentCaptor.forClass(List.class);
+        verify(productEventOutbox).recordUpserted(eventCaptor.capture());
+        assertThat(eventCaptor.getValue()).extracting(product -> product.get_id().toHexString())
+                .containsExactly(result.getItems().get(0).getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpsertBatch_RecordsReplacedProductsInCategoryStats() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+        String id = "0123456789abcdef01234567";
+        Product previous = new Product(id, "Pencil", "HB", "Office", 1.0);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(previous));
+
+        Product replacement = new Product(id, "Pencil", "HB", "Stationery", 1.5);
+        Product newProduct = new Product();
+        newProduct.setName("Eraser");
+        productBulkService.upsertBatch(List.of(replacement, newProduct));
+
+        // The previous versions are read in one query and handed to the stats with the written products
+        ArgumentCaptor<Map<ObjectId, Product>> previousCaptor = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<List<Product>> upsertedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Product.class));
+        verify(categoryStatsService).recordAll(previousCaptor.capture(), upsertedCaptor.capture());
+        assertThat(previousCaptor.getValue()).containsExactly(Map.entry(previous.get_id(), previous));
+        assertThat(upsertedCaptor.getValue()).hasSize(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpsertAll_RepeatedIdWritesLastProductOnce() throws Exception {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+        String id = "0123456789abcdef01234567";
+        String first = "{\"_id\":\"" + id + "\",\"name\":\"Pencil\",\"description\":\"HB\",\"category\":\"Office\",\"price\":1.0}";
+        String second = "{\"_id\":\"" + id + "\",\"name\":\"Pencil\",\"description\":\"HB\",\"category\":\"Stationery\",\"price\":1.5}";
+
+        BulkWriteResult result = productBulkService.upsertAll(stream(first + "\n" + second + "\n"));
+
+        // One replace with the last product; both items share its outcome
+        ArgumentCaptor<Product> written = ArgumentCaptor.forClass(Product.class);
+        verify(bulkOperations, times(1)).replaceOne(any(Query.class), written.capture(), any(FindAndReplaceOptions.class));
+        assertThat(written.getValue().getCategory()).isEqualTo("Stationery");
+        assertThat(result.getItems()).extracting(BulkItemResult::getStatus)
+                .containsExactly(BulkItemResult.Status.UPSERTED, BulkItemResult.Status.UPSERTED);
+        assertThat(result.getItems()).extracting(BulkItemResult::getId).containsExactly(id, id);
+
+        // One change event, and the stats see the id once
+        ArgumentCaptor<List<Product>> events = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Product>> upserted = ArgumentCaptor.forClass(List.class);
+        verify(productEventOutbox).recordUpserted(events.capture());
+        verify(categoryStatsService).recordAll(any(Map.class), upserted.capture());
+        assertThat(events.getValue()).containsExactly(written.getValue());
+        assertThat(upserted.getValue()).containsExactly(written.getValue());
+    }
+
+    @Test
+    public void testUpsertAll_RepeatedIdSharesFailure() throws Exception {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulkOperations);
+        // Index 0 of the bulk write is the single write for the repeated id
+        BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0);
+        when(bulkOperations.execute()).thenThrow(new BulkOperationException("bulk write failed",
+                new MongoBulkWriteException(com.mongodb.bulk.BulkWriteResult.unacknowledged(), List.of(error), null, new ServerAddress(), Set.of())));
+        String product = "{\"_id\":\"0123456789abcdef01234567\",\"name\":\"Pencil\",\"description\":\"HB\",\"category\":\"Office\",\"price\":1.0}";
+
+        BulkWriteResult result = productBulkService.upsertAll(stream(product + "\n" + product + "\n"));
+
+        assertThat(result.getItems()).extracting(BulkItemResult::getStatus)
+                .containsExactly(BulkItemResult.Status.FAILED, BulkItemResult.Status.FAILED);
+        assertThat(result.getItems()).allSatisfy(item -> assertThat(item.getErrors()).containsEntry("error", "duplicate key"));
+    }
+
+    @Test
+    public void testUpsertAll_MalformedInput() throws Exception {
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Product.class))).thenReturn(bulkOperations);
+
+        BulkWriteResult result = productBulkService.upsertAll(stream(VALID_PRODUCT + "\n{\"name\": "));
+
+        // Products read before the malformed one are still written
+        assertThat(result.getUpserted()).isEqualTo(1);
+        assertThat(result.getItems().get(1).getStatus()).isEqualTo(BulkItemResult.Status.INVALID);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,170 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProductCacheTest {
+    private static final String ID = "648bf631486b00c1f20b0289";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testGet_CoalescesConcurrentMisses() throws Exception {
+        ProductCache productCache = new ProductCache(100, 0, Duration.ofMinutes(5), Duration.ofSeconds(5));
+        Product product = new Product(ID, "Test Product", "Test Description", "Test Category", 10.0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Optional<Product>> leader = executor.submit(() -> productCache.get(ID, id -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return Optional.of(product);
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Future<Optional<Product>>> waiters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiters.add(executor.submit(() -> productCache.get(ID, id -> {
+                loads.incrementAndGet();
+                return Optional.of(product);
+            })));
+        }
+        awaitCoalesced(productCache, 4);
+        release.countDown();
+
+        assertSameContent(leader.get(5, TimeUnit.SECONDS), product);
+        for (Future<Optional<Product>> waiter : waiters) {
+            assertSameContent(waiter.get(5, TimeUnit.SECONDS), product);
+        }
+        assertThat(loads).hasValue(1);
+        assertSameContent(productCache.getIfPresent(ID), product);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGet_HandsOutCopies() {
+        ProductCache productCache = new ProductCache(100, 0, Duration.ofMinutes(5), Duration.ofSeconds(5));
+        Product product = new Product(ID, "Test Product", "Test Description", "Test Category", 10.0);
+        product.addField("tags", new ArrayList<>(List.of("new")));
+
+        Product loaded = productCache.get(ID, id -> Optional.of(product)).orElseThrow();
+        loaded.setPrice(1.0);
+        ((List<Object>) loaded.getAdditionalFields().get("tags")).add("sale");
+        Product cached = productCache.getIfPresent(ID).orElseThrow();
+        cached.getAdditionalFields().put("color", "red");
+
+        Product reread = productCache.getIfPresent(ID).orElseThrow();
+        assertThat(reread.getPrice()).isEqualTo(10.0);
+        assertThat(reread.getAdditionalFields()).containsExactly(Map.entry("tags", List.of("new")));
+    }
+
+    @Test
+    public void testGet_FailedLoadFailsWaitersAndIsNotCached() throws Exception {
+        ProductCache productCache = new ProductCache(100, 0, Duration.ofMinutes(5), Duration.ofSeconds(5));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Optional<Product>> leader = executor.submit(() -> productCache.get(ID, id -> {
+            loading.countDown();
+            await(release);
+            throw new IllegalStateException("Mongo is down");
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<Optional<Product>> waiter = executor.submit(() -> productCache.get(ID, id -> Optional.empty()));
+        awaitCoalesced(productCache, 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+
+        // The next read loads again
+        Product product = new Product(ID, "Test Product", "Test Description", "Test Category", 10.0);
+        assertSameContent(productCache.get(ID, id -> Optional.of(product)), product);
+    }
+
+    @Test
+    public void testGet_WaiterTimesOut() throws Exception {
+        ProductCache productCache = new ProductCache(100, 0, Duration.ofMinutes(5), Duration.ofMillis(50));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Optional<Product>> leader = executor.submit(() -> productCache.get(ID, id -> {
+            loading.countDown();
+            await(release);
+            return Optional.empty();
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> productCache.get(ID, id -> Optional.empty()))
+                .isInstanceOf(QueryTimeoutException.class);
+        assertThat(productCache.getStatistics()).containsEntry("loadTimeouts", 1L);
+
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEmpty();
+    }
+
+    @Test
+    public void testInvalidate_DiscardsInFlightLoad() throws Exception {
+        ProductCache productCache = new ProductCache(100, 0, Duration.ofMinutes(5), Duration.ofSeconds(5));
+        Product stale = new Product(ID, "Stale Product", "Test Description", "Test Category", 10.0);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Optional<Product>> leader = executor.submit(() -> productCache.get(ID, id -> {
+            loading.countDown();
+            await(release);
+            return Optional.of(stale);
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        productCache.invalidate(ID);
+        release.countDown();
+
+        // The read that started before the write still sees its own result, but it is not cached
+        assertSameContent(leader.get(5, TimeUnit.SECONDS), stale);
+        assertThat(productCache.getIfPresent(ID)).isEmpty();
+    }
+
+    private static void assertSameContent(Optional<Product> actual, Product expected) {
+        assertThat(actual).hasValueSatisfying(product -> assertThat(product).usingRecursiveComparison().isEqualTo(expected));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitCoalesced(ProductCache productCache, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (productCache.getStatistics().get("coalesced") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(productCache.getStatistics()).containsEntry("coalesced", expected);
+    }
+}
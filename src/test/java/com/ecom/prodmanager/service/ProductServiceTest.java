@@ -1,18 +1,43 @@
 package com.ecom.prodmanager.service;
 
+import com.ecom.prodmanager.events.ProductEventOutbox;
+import com.ecom.prodmanager.model.MultiGetItem;
+import com.ecom.prodmanager.model.PageToken;
 import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductPage;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.ecom.prodmanager.model.ProductVersions;
 import com.ecom.prodmanager.repository.ProductRepository;
+import com.ecom.prodmanager.util.ProductETags;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +46,30 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private AttributeUsageTracker attributeUsageTracker;
+
+    @Mock
+    private ProductEventOutbox productEventOutbox;
+
+    @Mock
+    private CategoryStatsService categoryStatsService;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Spy
+    private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ProductCache productCache = new ProductCache(100, 0, Duration.ofMinutes(5), Duration.ofSeconds(5));
+
     @InjectMocks
     private ProductService productService;
 
@@ -56,6 +105,163 @@ public class ProductServiceTest {
     }
 
 
+    @Test
+    public void testGetProductById_CachesHits() {
+        // Prepare mock data
+        String objectId = "648bf631486b00c1f20b0289";
+        Product mockProduct = new Product(objectId, "Test Product", "Test Description", "Test Category", 10.0);
+        when(productRepository.findById(objectId)).thenReturn(Optional.of(mockProduct));
+
+        // Read the same product twice, the second time with a differently cased id; each read gets its own copy
+        Product first = productService.getProductById(objectId).orElseThrow();
+        Product second = productService.getProductById(objectId.toUpperCase()).orElseThrow();
+        assertThat(first).usingRecursiveComparison().isEqualTo(mockProduct);
+        assertThat(second).usingRecursiveComparison().isEqualTo(mockProduct);
+        assertThat(second).isNotSameAs(first);
+
+        // Verify that only the first read reached the repository
+        verify(productRepository, times(1)).findById(objectId);
+        assertThat(productService.getCacheStatistics())
+                .containsEntry("hits", 1L)
+                .containsEntry("misses", 1L);
+    }
+
+    @Test
+    public void testGetProductById_DoesNotCacheMissingProducts() {
+        String objectId = "648bf631486b00c1f20b0289";
+        when(productRepository.findById(objectId)).thenReturn(Optional.empty());
+
+        assertThat(productService.getProductById(objectId)).isEmpty();
+        assertThat(productService.getProductById(objectId)).isEmpty();
+
+        verify(productRepository, times(2)).findById(objectId);
+    }
+
+    @Test
+    public void testGetProductById_SparseFields() {
+        String objectId = "648bf631486b00c1f20b0289";
+        ProductFields fields = ProductFields.parse("name,color");
+        Product fullProduct = new Product(objectId, "Test Product", "Test Description", "Test Category", 10.0);
+        fullProduct.addField("color", "red");
+        Product projected = new Product();
+        projected.set_id(new ObjectId(objectId));
+        projected.setName("Test Product");
+        when(productRepository.findById(objectId, fields)).thenReturn(Optional.of(projected));
+
+        // Not cached yet: the projection is pushed down to Mongo and the partial product is not cached
+        assertThat(productService.getProductById(objectId, fields)).contains(projected);
+        assertThat(productService.getCacheStatistics()).containsEntry("size", 0L);
+
+        // Cached: projected in memory without another read
+        when(productRepository.findById(objectId)).thenReturn(Optional.of(fullProduct));
+        productService.getProductById(objectId);
+        Product fromCache = productService.getProductById(objectId, fields).orElseThrow();
+        assertThat(fromCache.getName()).isEqualTo("Test Product");
+        assertThat(fromCache.getPrice()).isNull();
+        assertThat(fromCache.getAdditionalFields()).containsExactly(Map.entry("color", "red"));
+        verify(productRepository, times(1)).findById(objectId, fields);
+    }
+
+    @Test
+    public void testGetProductsByIds() {
+        String cachedId = "648bf631486b00c1f20b0289";
+        String storedId = "648bf631486b00c1f20b028a";
+        String missingId = "648bf631486b00c1f20b028b";
+        Product cached = new Product(cachedId, "Cached", "Test Description", "Test Category", 10.0);
+        Product stored = new Product(storedId, "Stored", "Test Description", "Test Category", 20.0);
+        when(productRepository.findById(cachedId)).thenReturn(Optional.of(cached));
+        productService.getProductById(cachedId);
+        when(productRepository.findByIds(List.of(new ObjectId(missingId), new ObjectId(storedId)), ProductFields.ALL))
+                .thenReturn(List.of(stored));
+
+        List<MultiGetItem> items = productService.getProductsByIds(
+                List.of(missingId, storedId, cachedId, "not-an-id", storedId.toUpperCase()), ProductFields.ALL);
+
+        // Duplicates are dropped, the rest keep the request order; only cache misses are queried
+        assertThat(items).extracting(MultiGetItem::getId).containsExactly(missingId, storedId, cachedId, "not-an-id");
+        assertThat(items).extracting(MultiGetItem::getStatus).containsExactly(MultiGetItem.Status.NOT_FOUND,
+                MultiGetItem.Status.FOUND, MultiGetItem.Status.FOUND, MultiGetItem.Status.NOT_FOUND);
+        assertThat(items).extracting(item -> item.getProduct() == null ? null : item.getProduct().getName())
+                .containsExactly(null, "Stored", "Cached", null);
+        verify(productRepository, times(1)).findByIds(anyCollection(), any());
+    }
+
+    @Test
+    public void testGetProductsByIds_AllCached() {
+        String objectId = "648bf631486b00c1f20b0289";
+        Product product = new Product(objectId, "Test Product", "Test Description", "Test Category", 10.0);
+        when(productRepository.findById(objectId)).thenReturn(Optional.of(product));
+        productService.getProductById(objectId);
+
+        List<MultiGetItem> items = productService.getProductsByIds(List.of(objectId), ProductFields.parse("name"));
+
+        assertThat(items.get(0).getProduct().getName()).isEqualTo("Test Product");
+        assertThat(items.get(0).getProduct().getPrice()).isNull();
+        verify(productRepository, never()).findByIds(anyCollection(), any());
+    }
+
+    @Test
+    public void testWritesInvalidateCachedProduct() {
+        // Prepare a cached product
+        String productId = "0123456789abcdef01234567";
+        Product cachedProduct = new Product(productId, "Product", "Description", "Category", 10.0);
+        when(productRepository.findById(productId)).thenReturn(Optional.of(cachedProduct));
+        productService.getProductById(productId);
+
+        // Every write to the product must evict it from the cache
+        productService.updateProduct(productId, new Product(productId, "Updated Product", "Updated Description", "Category", 20.0));
+        productService.patchProduct(productId, Map.of("color", "red"));
+        productService.deleteProduct(productId);
+        productService.addProduct(new Product(productId, "Product", "Description", "Category", 10.0));
+
+        verify(productCache, times(4)).invalidate(productId);
+        assertThat(productService.getCacheStatistics()).containsEntry("size", 0L);
+    }
+
+    @Test
+    public void testWritesRecordChangeEvents() {
+        String productId = "0123456789abcdef01234567";
+        Product product = new Product(productId, "Product", "Description", "Category", 10.0);
+        when(mongoTemplate.findAndReplace(any(Query.class), eq(product), any(FindAndReplaceOptions.class))).thenReturn(product);
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Product.class))).thenReturn(product);
+
+        // Every successful write records its event in the outbox and its difference in the category stats
+        productService.addProduct(product);
+        productService.updateProduct(productId, product);
+        productService.deleteProduct(productId);
+
+        verify(productEventOutbox, times(2)).recordUpserted(product);
+        verify(productEventOutbox).recordDeleted(productId);
+        verify(categoryStatsService, times(2)).record(product, product);
+        verify(categoryStatsService).record(product, null);
+    }
+
+    @Test
+    public void testPatchProduct_RecordsCategoryMove() {
+        String productId = "0123456789abcdef01234567";
+        Product previous = new Product(productId, "Product", "Description", "Stationery", 10.0);
+        previous.addField("color", "red");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+                .thenReturn(previous);
+
+        Product patched = productService.patchProduct(productId, Map.of("category", "Office")).orElseThrow();
+
+        // The stats move the product from its previous category to the new one
+        assertThat(patched.getCategory()).isEqualTo("Office");
+        assertThat(patched.getAdditionalFields()).containsEntry("color", "red");
+        verify(categoryStatsService).record(previous, patched);
+    }
+
+    @Test
+    public void testUpdateOfMissingProductRecordsNoEvent() {
+        String productId = "0123456789abcdef01234567";
+
+        productService.updateProduct(productId, new Product(productId, "Product", "Description", "Category", 10.0));
+        productService.patchProduct(productId, Map.of("color", "red"));
+
+        verifyNoInteractions(productEventOutbox, categoryStatsService);
+    }
+
     @Test
     public void testAddProduct() {
         // Prepare mock data
@@ -87,50 +293,340 @@ public class ProductServiceTest {
         mockProducts.add(new Product("0123456789ABCDEF01234500", "Product 2", "Description 2", "Category 2", 20.0));
 
         // Mock the behavior of ProductRepository
-        when(productRepository.findAll()).thenReturn(mockProducts);
+        when(productRepository.findAll(ProductFields.ALL)).thenReturn(mockProducts);
 
         // Invoke the method under test
-        List<Product> result = productService.getAllProducts();
+        List<Product> result = productService.getAllProducts(ProductFields.ALL);
 
         // Verify the result
         assertThat(result).isEqualTo(mockProducts);
-        verify(productRepository, times(1)).findAll();
+        verify(productRepository, times(1)).findAll(ProductFields.ALL);
+    }
+
+    @Test
+    public void testStreamAllProducts() {
+        // Prepare mock data
+        Product product = new Product("0123456789ABCDEF01234567", "Product 1", "Description 1", "Category 1", 10.0);
+
+        // Mock the behavior of ProductRepository
+        when(productRepository.streamAllBy(ProductFields.ALL)).thenReturn(Stream.of(product));
+
+        // Invoke the method under test
+        try (Stream<Product> result = productService.streamAllProducts(ProductFields.ALL)) {
+            assertThat(result).containsExactly(product);
+        }
+        verify(productRepository, times(1)).streamAllBy(ProductFields.ALL);
+        verify(productRepository, never()).findAll(any(ProductFields.class));
+    }
+
+    @Test
+    public void testGetProductPage_FirstPage() {
+        // Prepare mock data: one product more than the requested limit
+        List<Product> mockProducts = new ArrayList<>();
+        mockProducts.add(new Product("0123456789ABCDEF01234500", "Product 1", "Description 1", "Category 1", 10.0));
+        mockProducts.add(new Product("0123456789ABCDEF01234567", "Product 2", "Description 2", "Category 2", 20.0));
+        mockProducts.add(new Product("0123456789ABCDEF01234599", "Product 3", "Description 3", "Category 3", 30.0));
+
+        // Mock the behavior of ProductRepository
+        when(productRepository.findPage(eq(ProductSortKey.PRICE), isNull(), eq(3), eq(ProductFields.ALL))).thenReturn(mockProducts);
+
+        // Invoke the method under test
+        ProductPage result = productService.getProductPage(ProductSortKey.PRICE, null, 2, ProductFields.ALL);
+
+        // Verify the page is trimmed to the limit and points after its last product
+        assertThat(result.getProducts()).hasSize(2);
+        PageToken token = PageToken.decode(result.getNextPageToken());
+        assertThat(token.getSortKey()).isEqualTo(ProductSortKey.PRICE);
+        assertThat(token.getLastId().toHexString()).isEqualToIgnoringCase("0123456789ABCDEF01234567");
+        assertThat(token.getLastPrice()).isEqualTo(20.0);
+
+        Query query = ProductSortKey.PRICE.pageQuery(null, 3);
+        assertThat(query.getQueryObject()).isEmpty();
+        assertThat(query.getSortObject()).isEqualTo(new Document("price", 1).append("_id", 1));
+        assertThat(query.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    public void testGetProductPage_NextPage() {
+        // Prepare a token pointing after a product
+        Product last = new Product("0123456789ABCDEF01234567", "Product 2", "Description 2", "Category 2", 20.0);
+        String pageToken = PageToken.after(ProductSortKey.PRICE, last).encode();
+        Product next = new Product("0123456789ABCDEF01234599", "Product 3", "Description 3", "Category 3", 30.0);
+
+        // Mock the behavior of ProductRepository
+        ArgumentCaptor<PageToken> tokenCaptor = ArgumentCaptor.forClass(PageToken.class);
+        when(productRepository.findPage(eq(ProductSortKey.PRICE), tokenCaptor.capture(), eq(3), eq(ProductFields.ALL))).thenReturn(List.of(next));
+
+        // Invoke the method under test
+        ProductPage result = productService.getProductPage(ProductSortKey.PRICE, pageToken, 2, ProductFields.ALL);
+
+        // Verify the last page has no continuation token and the query continues after the token
+        assertThat(result.getProducts()).containsExactly(next);
+        assertThat(result.getNextPageToken()).isNull();
+        assertThat(ProductSortKey.PRICE.pageQuery(tokenCaptor.getValue(), 3).getQueryObject()).isEqualTo(new Document("$or", List.of(
+                new Document("price", new Document("$gt", 20.0)),
+                new Document("price", 20.0).append("_id", new Document("$gt", last.get_id())))));
+    }
+
+    @Test
+    public void testGetProductPage_NextPageAfterNullValue() {
+        // Products without a category sort first; the token keeps their null apart from ""
+        Product last = new Product("0123456789ABCDEF01234567", "Product 2", "Description 2", "Category 2", 20.0);
+        last.setCategory(null);
+        PageToken token = PageToken.decode(PageToken.after(ProductSortKey.CATEGORY, last).encode());
+
+        assertThat(token.getLastValue()).isNull();
+        assertThat(ProductSortKey.CATEGORY.pageQuery(token, 3).getQueryObject()).isEqualTo(new Document("$or", List.of(
+                new Document("category", new Document("$ne", null)),
+                new Document("category", null).append("_id", new Document("$gt", last.get_id())))));
+
+        // A product without a price used to give a token that could not be decoded
+        last.setPrice(null);
+        PageToken priceToken = PageToken.decode(PageToken.after(ProductSortKey.PRICE, last).encode());
+        assertThat(priceToken.getLastPrice()).isNull();
+        assertThat(PageToken.decode(new PageToken(ProductSortKey.CATEGORY, last.get_id(), "").encode()).getLastValue()).isEmpty();
+    }
+
+    @Test
+    public void testGetProductPage_SparseFieldsIncludeSortField() {
+        Product product = new Product("0123456789ABCDEF01234567", null, null, null, 20.0);
+        when(productRepository.findPage(eq(ProductSortKey.PRICE), isNull(), eq(2), any(ProductFields.class))).thenReturn(List.of(product));
+
+        productService.getProductPage(ProductSortKey.PRICE, null, 1, ProductFields.parse("name"));
+
+        ArgumentCaptor<ProductFields> fieldsCaptor = ArgumentCaptor.forClass(ProductFields.class);
+        verify(productRepository).findPage(eq(ProductSortKey.PRICE), isNull(), eq(2), fieldsCaptor.capture());
+        assertThat(fieldsCaptor.getValue().toProjection()).isEqualTo(new Document(ProductVersions.FIELD, 1).append("name", 1).append("price", 1));
+    }
+
+    @Test
+    public void testGetProductPage_TokenForOtherSort() {
+        Product last = new Product("0123456789ABCDEF01234567", "Product 2", "Description 2", "Category 2", 20.0);
+        String pageToken = PageToken.after(ProductSortKey.CATEGORY, last).encode();
+
+        assertThatThrownBy(() -> productService.getProductPage(ProductSortKey.ID, pageToken, 2, ProductFields.ALL))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productService.getProductPage(ProductSortKey.ID, "not-a-token", 2, ProductFields.ALL))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testSearchProducts() {
+        // Prepare mock data
+        ProductSearch search = new ProductSearch("Stationery", 1.0, 5.0, Sort.Direction.DESC, 10);
+        Product product = new Product("0123456789ABCDEF01234567", "Pencil", "HB pencil", "Stationery", 1.5);
+        when(productRepository.search(search, ProductFields.ALL)).thenReturn(List.of(product));
+
+        // Invoke the method under test
+        List<Product> result = productService.searchProducts(search, ProductFields.ALL);
+
+        // Verify the result and the query the search compiles to
+        assertThat(result).containsExactly(product);
+        Query query = search.toQuery();
+        assertThat(query.getQueryObject()).isEqualTo(new Document("category", "Stationery")
+                .append("price", new Document("$gte", 1.0).append("$lte", 5.0)));
+        assertThat(query.getSortObject()).isEqualTo(new Document("price", -1));
+        assertThat(query.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    public void testSearchProducts_ByAttributes() {
+        // Prepare a search on two dynamic attributes
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("color", "red");
+        attributes.put("size", "42");
+        ProductSearch search = new ProductSearch(null, null, null, attributes, Sort.Direction.ASC, 10);
+
+        // Invoke the method under test
+        productService.searchProducts(search, ProductFields.ALL);
+
+        // Verify the attributes are tracked and compile into equality filters on the top-level keys
+        verify(attributeUsageTracker).record(attributes.keySet());
+        verify(productRepository).search(search, ProductFields.ALL);
+        assertThat(search.toQuery().getQueryObject()).isEqualTo(new Document()
+                .append("color", new Document("$in", List.of("red")))
+                .append("size", new Document("$in", List.of("42", 42.0))));
+    }
+
+    @Test
+    public void testSearchProducts_InvalidFilters() {
+        assertThatThrownBy(() -> productService.searchProducts(new ProductSearch(null, null, null, Sort.Direction.ASC, 10), ProductFields.ALL))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productService.searchProducts(new ProductSearch(null, 5.0, 1.0, Sort.Direction.ASC, 10), ProductFields.ALL))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productService.searchProducts(new ProductSearch(null, null, null, Map.of("$where", "1"), Sort.Direction.ASC, 10), ProductFields.ALL))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productService.searchProducts(new ProductSearch(null, null, null, Map.of("price", "1"), Sort.Direction.ASC, 10), ProductFields.ALL))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(productRepository, never()).search(any(ProductSearch.class), any(ProductFields.class));
     }
 
     @Test
     public void testUpdateProduct() {
         // Prepare mock data
         String productId = "0123456789ABCDEF01234567";
-        Product existingProduct = new Product(productId, "Product", "Description", "Category", 10.0);
         Product updatedProduct = new Product(productId, "Updated Product", "Updated Description", "Updated Category", 20.0);
 
-        // Mock the behavior of ProductRepository
-        when(productRepository.findById(productId)).thenReturn(Optional.of(existingProduct));
-        when(productRepository.save(Mockito.any(Product.class))).thenReturn(updatedProduct);
+        // Mock the behavior of MongoTemplate
+        when(mongoTemplate.findAndReplace(any(Query.class), eq(updatedProduct), any(FindAndReplaceOptions.class))).thenReturn(updatedProduct);
 
         // Invoke the method under test
         Optional<Product> result = productService.updateProduct(productId, updatedProduct);
 
-        // Verify the result
+        // Verify the product was replaced in a single round trip
         assertThat(result).isPresent();
         assertThat(result.get()).isEqualTo(updatedProduct);
-        verify(productRepository, times(1)).findById(productId);
-        verify(productRepository, times(1)).save(Mockito.any(Product.class));
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).findAndReplace(queryCaptor.capture(), eq(updatedProduct), any(FindAndReplaceOptions.class));
+        assertThat(queryCaptor.getValue().getQueryObject().get("_id")).isEqualTo(new ObjectId(productId));
+        verify(productRepository, never()).findById(anyString());
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    public void testUpdateProduct_NotFound() {
+        String productId = "0123456789ABCDEF01234567";
+        Product updatedProduct = new Product(productId, "Updated Product", "Updated Description", "Updated Category", 20.0);
+
+        assertThat(productService.updateProduct(productId, updatedProduct)).isEmpty();
+        assertThat(productService.updateProduct("not-an-object-id", updatedProduct)).isEmpty();
+    }
+
+    @Test
+    public void testUpdateProduct_IfMatch() {
+        String productId = "0123456789abcdef01234567";
+        Product previous = new Product(productId, "Product", "Description", "Category", 10.0);
+        previous.setVersion(42L);
+        Product updatedProduct = new Product();
+        updatedProduct.setName("Updated Product");
+        updatedProduct.setCategory("Category");
+        updatedProduct.setPrice(20.0);
+        when(mongoTemplate.findAndReplace(any(Query.class), eq(updatedProduct), any(FindAndReplaceOptions.class))).thenReturn(previous);
+
+        Product saved = productService.updateProduct(productId, updatedProduct,
+                List.of("\"other\"", ProductETags.of(previous, ProductFields.ALL)));
+
+        // One conditional replace of the tagged version, which gives the product a new one
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndReplace(queryCaptor.capture(), eq(updatedProduct), any(FindAndReplaceOptions.class));
+        assertThat(queryCaptor.getValue().getQueryObject()).isEqualTo(new Document("_id", new ObjectId(productId))
+                .append(ProductVersions.FIELD, new Document("$in", List.of(42L))));
+        assertThat(saved.get_id()).isEqualTo(new ObjectId(productId));
+        assertThat(saved.getVersion()).isNotNull().isNotEqualTo(42L);
+        verify(categoryStatsService).record(previous, updatedProduct);
+        verify(productCache).invalidate(productId);
+        verify(catalogVersion).increment();
+    }
+
+    @Test
+    public void testUpdateProduct_IfMatchFails() {
+        String productId = "0123456789abcdef01234567";
+        Product updatedProduct = new Product(productId, "Updated Product", "Updated Description", "Category", 20.0);
+
+        // No tag of this product: nothing is written
+        assertThatThrownBy(() -> productService.updateProduct(productId, updatedProduct, List.of("\"stale\"")))
+                .isInstanceOf(PreconditionFailedException.class);
+        verifyNoInteractions(mongoTemplate);
+
+        // Changed in the meantime, or no such product: the conditional replace matches nothing
+        assertThatThrownBy(() -> productService.updateProduct(productId, updatedProduct, List.of("*")))
+                .isInstanceOf(PreconditionFailedException.class);
+        verifyNoInteractions(categoryStatsService, productEventOutbox, catalogVersion);
+    }
+
+    @Test
+    public void testDeleteProduct_IfMatch() {
+        String productId = "0123456789abcdef01234567";
+        Product previous = new Product(productId, "Product", "Description", "Category", 10.0);
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Product.class))).thenReturn(previous);
+
+        // Products written before versions were introduced are tagged with version 0
+        productService.deleteProduct(productId, List.of(ProductETags.of(previous, ProductFields.ALL)));
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndRemove(queryCaptor.capture(), eq(Product.class));
+        assertThat(queryCaptor.getValue().getQueryObject().get(ProductVersions.FIELD, Document.class).getList("$in", Long.class))
+                .containsExactly(0L, null);
+        verify(categoryStatsService).record(previous, null);
+        verify(productEventOutbox).recordDeleted(productId);
+        verify(catalogVersion).increment();
+    }
+
+    @Test
+    public void testPatchProduct() {
+        // Prepare a patch changing the price, setting one dynamic field and removing another
+        String productId = "0123456789ABCDEF01234567";
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("price", 25);
+        changes.put("color", "red");
+        changes.put("size", null);
+        Product previousProduct = new Product(productId, "Product", "Description", "Category", 10.0);
+        previousProduct.addField("size", "XL");
+
+        // Mock the behavior of MongoTemplate, which returns the product as it was before the update
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+                .thenReturn(previousProduct);
+
+        // Invoke the method under test
+        Optional<Product> result = productService.patchProduct(productId, changes);
+
+        // Verify a single findAndModify with only the changed fields, and the update applied to the result
+        assertThat(result).hasValueSatisfying(product -> {
+            assertThat(product.getPrice()).isEqualTo(25.0);
+            assertThat(product.getName()).isEqualTo("Product");
+            assertThat(product.getAdditionalFields()).containsExactly(Map.entry("color", "red"));
+        });
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Product.class));
+        Document updateObject = updateCaptor.getValue().getUpdateObject();
+        assertThat(updateObject.get("$set", Document.class)).containsEntry("price", 25.0).containsEntry("color", "red")
+                .containsKey(ProductVersions.FIELD).hasSize(3);
+        assertThat(updateObject.get("$unset", Document.class)).containsOnlyKeys("size");
+        verify(productRepository, never()).save(any(Product.class));
     }
 
+    @Test
+    public void testPatchProduct_InvalidFields() {
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("name", null);
+        changes.put("price", -1);
+        changes.put("category", 5);
+
+        assertThatThrownBy(() -> productService.patchProduct("0123456789ABCDEF01234567", changes))
+                .isInstanceOfSatisfying(ProductValidationException.class, e -> assertThat(e.getErrors())
+                        .containsEntry("name", "Name is required")
+                        .containsEntry("price", "Price must be a positive value")
+                        .containsEntry("category", "Must be a string"));
+        verifyNoInteractions(mongoTemplate);
+    }
 
     @Test
     public void testDeleteProduct() {
         // Prepare mock data
         String productId = "0123456789ABCDEF01234567";
-
-        // Mock the behavior of ProductRepository
-        Mockito.doNothing().when(productRepository).deleteById(productId);
+        Product previous = new Product(productId, "Product", "Description", "Category", 10.0);
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Product.class))).thenReturn(previous);
 
         // Invoke the method under test
         productService.deleteProduct(productId);
 
-        // Verify the interaction with ProductRepository
-        verify(productRepository, times(1)).deleteById(productId);
+        // Verify the product is removed in a single findAndRemove, which returns what the stats must drop
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).findAndRemove(queryCaptor.capture(), eq(Product.class));
+        assertThat(queryCaptor.getValue().getQueryObject().get("_id")).isEqualTo(new ObjectId(productId));
+        verify(categoryStatsService).record(previous, null);
+        verify(productEventOutbox).recordDeleted(productId);
+        verify(catalogVersion).increment();
     }
+
+    @Test
+    public void testDeleteProduct_NothingToDelete() {
+        // Neither a missing product nor an invalid id is a change
+        productService.deleteProduct("0123456789ABCDEF01234567");
+        productService.deleteProduct("not-an-id");
+
+        verify(mongoTemplate, times(1)).findAndRemove(any(Query.class), eq(Product.class));
+        verifyNoInteractions(categoryStatsService, productEventOutbox, catalogVersion);
+    }
+
 }
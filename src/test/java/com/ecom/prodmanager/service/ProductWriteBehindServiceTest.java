@@ -0,0 +1,254 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.model.BulkItemResult;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.WriteBehindStatus;
+import com.ecom.prodmanager.repository.BulkheadFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ProductWriteBehindServiceTest {
+
+    private final ProductBulkService productBulkService = mock(ProductBulkService.class);
+    private ProductWriteBehindService productWriteBehindService;
+
+    @AfterEach
+    public void tearDown() {
+        productWriteBehindService.stop();
+    }
+
+    @Test
+    public void testFlushesFullBatches() {
+        start(3, Duration.ofMinutes(1), "reject", 100);
+        writeAllProducts();
+
+        List<WriteBehindStatus> statuses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            statuses.add(productWriteBehindService.offer(product("Product " + i)).orElseThrow());
+        }
+
+        // The batch was full, so it did not wait for the flush interval
+        verify(productBulkService, timeout(5000)).upsertBatch(argThat(batch -> batch.size() == 3));
+        for (WriteBehindStatus status : statuses) {
+            assertThat(awaitWritten(status.getTrackingId()).getProductId()).isEqualTo(status.getProductId());
+        }
+    }
+
+    @Test
+    public void testFlushesPartialBatchesAfterInterval() {
+        start(100, Duration.ofMillis(20), "reject", 100);
+        writeAllProducts();
+
+        WriteBehindStatus status = productWriteBehindService.offer(product("Pencil")).orElseThrow();
+
+        assertThat(status.getState()).isEqualTo(WriteBehindStatus.State.QUEUED);
+        awaitWritten(status.getTrackingId());
+        verify(productBulkService).upsertBatch(argThat(batch -> batch.size() == 1));
+    }
+
+    @Test
+    public void testWritesOnlyLatestProductPerId() {
+        start(2, Duration.ofMinutes(1), "reject", 100);
+        writeAllProducts();
+        Product first = product("Pencil");
+        productWriteBehindService.offer(first);
+        Product second = product("Renamed pencil");
+        second.set_id(first.get_id());
+        WriteBehindStatus status = productWriteBehindService.offer(second).orElseThrow();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Product>> batch = ArgumentCaptor.forClass(List.class);
+        verify(productBulkService, timeout(5000)).upsertBatch(batch.capture());
+        assertThat(batch.getValue()).containsExactly(second);
+        awaitWritten(status.getTrackingId());
+    }
+
+    @Test
+    public void testReportsFailedProducts() {
+        start(1, Duration.ofMinutes(1), "reject", 100);
+        when(productBulkService.upsertBatch(anyList())).thenReturn(List.of(BulkItemResult.failed(0, "id", "document too large")));
+
+        WriteBehindStatus status = productWriteBehindService.offer(product("Pencil")).orElseThrow();
+
+        WriteBehindStatus failed = awaitState(status.getTrackingId(), WriteBehindStatus.State.FAILED);
+        assertThat(failed.getError()).isEqualTo("document too large");
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        // The flusher takes the first product and blocks writing it; the second fills the queue
+        start(1, Duration.ofMinutes(1), "reject", 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productBulkService.upsertBatch(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<Product> batch = invocation.getArgument(0);
+            return List.of(BulkItemResult.upserted(0, batch.get(0).get_id().toHexString()));
+        });
+        productWriteBehindService.offer(product("First"));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        productWriteBehindService.offer(product("Second"));
+
+        assertThatThrownBy(() -> productWriteBehindService.offer(product("Third")))
+                .isInstanceOf(WriteBehindQueueFullException.class);
+        release.countDown();
+    }
+
+    @Test
+    public void testOverflowSpillsToCaller() throws Exception {
+        start(1, Duration.ofMinutes(1), "spill", 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productBulkService.upsertBatch(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<Product> batch = invocation.getArgument(0);
+            return List.of(BulkItemResult.upserted(0, batch.get(0).get_id().toHexString()));
+        });
+        productWriteBehindService.offer(product("First"));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        productWriteBehindService.offer(product("Second"));
+
+        assertThat(productWriteBehindService.offer(product("Third"))).isEmpty();
+        release.countDown();
+    }
+
+    @Test
+    public void testRetriesWhenBulkheadIsFull() {
+        start(1, Duration.ofMinutes(1), "reject", 100);
+        // The bulkhead rejects the first attempt, the retry gets a permit
+        when(productBulkService.upsertBatch(anyList()))
+                .thenThrow(new BulkheadFullException(Duration.ofMillis(100)))
+                .thenAnswer(invocation -> List.of(BulkItemResult.upserted(0, invocation.<List<Product>>getArgument(0).get(0).get_id().toHexString())));
+
+        WriteBehindStatus status = productWriteBehindService.offer(product("Pencil")).orElseThrow();
+
+        awaitWritten(status.getTrackingId());
+        verify(productBulkService, times(2)).upsertBatch(anyList());
+    }
+
+    @Test
+    public void testInterruptedFlusherFailsPendingProducts() throws Exception {
+        start(1, Duration.ofMinutes(1), "reject", 100);
+        CountDownLatch retrying = new CountDownLatch(1);
+        List<Thread> flusher = new ArrayList<>();
+        // The first write fails, so the flusher sleeps before retrying
+        when(productBulkService.upsertBatch(anyList())).thenAnswer(invocation -> {
+            flusher.add(Thread.currentThread());
+            retrying.countDown();
+            throw new DataAccessResourceFailureException("Mongo unreachable");
+        });
+        WriteBehindStatus inFlight = productWriteBehindService.offer(product("Pencil")).orElseThrow();
+        assertThat(retrying.await(5, TimeUnit.SECONDS)).isTrue();
+        WriteBehindStatus queued = productWriteBehindService.offer(product("Eraser")).orElseThrow();
+
+        flusher.get(0).interrupt();
+
+        // Both the batch being retried and the product behind it fail instead of staying queued
+        assertThat(awaitState(inFlight.getTrackingId(), WriteBehindStatus.State.FAILED).getError()).contains("stopped");
+        awaitState(queued.getTrackingId(), WriteBehindStatus.State.FAILED);
+        assertThat(productWriteBehindService.offer(product("Ruler"))).isEmpty();
+    }
+
+    @Test
+    public void testStopFlushesQueuedProducts() {
+        start(100, Duration.ofMinutes(1), "reject", 100);
+        writeAllProducts();
+        WriteBehindStatus status = productWriteBehindService.offer(product("Pencil")).orElseThrow();
+
+        productWriteBehindService.stop();
+
+        assertThat(productWriteBehindService.getStatus(status.getTrackingId()))
+                .hasValueSatisfying(written -> assertThat(written.getState()).isEqualTo(WriteBehindStatus.State.WRITTEN));
+        // Once stopped, products are handed back to be written synchronously
+        assertThat(productWriteBehindService.offer(product("Eraser"))).isEmpty();
+    }
+
+    @Test
+    public void testStopWritesEveryAcceptedProduct() throws Exception {
+        start(10, Duration.ofMillis(1), "spill", 1000);
+        writeAllProducts();
+        List<WriteBehindStatus> accepted = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> offering = new ArrayList<>();
+        CountDownLatch started = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                // Offers until the stop is seen, racing with the final drain
+                Optional<WriteBehindStatus> status;
+                while ((status = productWriteBehindService.offer(product("Pencil"))).isPresent()) {
+                    accepted.add(status.get());
+                }
+            });
+            thread.start();
+            offering.add(thread);
+        }
+        started.await();
+
+        productWriteBehindService.stop();
+        for (Thread thread : offering) {
+            thread.join();
+        }
+
+        // Nothing accepted is left queued behind the stop
+        assertThat(accepted).isNotEmpty();
+        assertThat(accepted).allSatisfy(status -> assertThat(productWriteBehindService.getStatus(status.getTrackingId()))
+                .hasValueSatisfying(written -> assertThat(written.getState()).isEqualTo(WriteBehindStatus.State.WRITTEN)));
+    }
+
+    private void start(int batchSize, Duration flushInterval, String overflow, int capacity) {
+        productWriteBehindService = new ProductWriteBehindService(productBulkService, true, capacity, batchSize,
+                flushInterval, overflow, Duration.ZERO, Duration.ofMinutes(5), 100_000);
+        productWriteBehindService.start();
+    }
+
+    private void writeAllProducts() {
+        when(productBulkService.upsertBatch(anyList())).thenAnswer(invocation -> {
+            List<Product> batch = invocation.getArgument(0);
+            List<BulkItemResult> results = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                results.add(BulkItemResult.upserted(i, batch.get(i).get_id().toHexString()));
+            }
+            return results;
+        });
+    }
+
+    private WriteBehindStatus awaitWritten(String trackingId) {
+        return awaitState(trackingId, WriteBehindStatus.State.WRITTEN);
+    }
+
+    private WriteBehindStatus awaitState(String trackingId, WriteBehindStatus.State state) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Optional<WriteBehindStatus> status = productWriteBehindService.getStatus(trackingId);
+        while (status.map(WriteBehindStatus::getState).orElse(null) != state && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            status = productWriteBehindService.getStatus(trackingId);
+        }
+        assertThat(status).hasValueSatisfying(current -> assertThat(current.getState()).isEqualTo(state));
+        return status.get();
+    }
+
+    private static Product product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Stationery");
+        product.setPrice(1.5);
+        return product;
+    }
+}
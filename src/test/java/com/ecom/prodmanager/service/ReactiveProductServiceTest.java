@@ -0,0 +1,155 @@
+package com.ecom.prodmanager.service;
+
+import com.ecom.prodmanager.events.ProductEventOutbox;
+import com.ecom.prodmanager.model.PageToken;
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import com.ecom.prodmanager.model.ProductSearch;
+import com.ecom.prodmanager.model.ProductSortKey;
+import com.ecom.prodmanager.repository.ReactiveProductRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveProductServiceTest {
+
+    private static final String ID = "0123456789abcdef01234567";
+
+    @Mock
+    private ReactiveProductRepository productRepository;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private AttributeUsageTracker attributeUsageTracker;
+
+    @Mock
+    private ProductEventOutbox productEventOutbox;
+
+    @Mock
+    private CategoryStatsService categoryStatsService;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @InjectMocks
+    private ReactiveProductService productService;
+
+    @Test
+    public void testGetProductPage_TrimsToLimitAndContinuesAfterLastProduct() {
+        Product first = new Product("0123456789abcdef01234500", "Product 1", "Description 1", "Category 1", 10.0);
+        Product second = new Product(ID, "Product 2", "Description 2", "Category 2", 20.0);
+        Product third = new Product("0123456789abcdef01234599", "Product 3", "Description 3", "Category 3", 30.0);
+        when(mongoTemplate.find(ProductSortKey.PRICE.pageQuery(null, 3), Product.class)).thenReturn(Flux.just(first, second, third));
+
+        StepVerifier.create(productService.getProductPage(ProductSortKey.PRICE, null, 2, ProductFields.ALL))
+                .assertNext(page -> {
+                    assertThat(page.getProducts()).containsExactly(first, second);
+                    assertThat(PageToken.decode(page.getNextPageToken()).getLastPrice()).isEqualTo(20.0);
+                })
+                .verifyComplete();
+
+        String token = PageToken.after(ProductSortKey.PRICE, second).encode();
+        when(mongoTemplate.find(ProductSortKey.PRICE.pageQuery(PageToken.decode(token), 3), Product.class)).thenReturn(Flux.just(third));
+        StepVerifier.create(productService.getProductPage(ProductSortKey.PRICE, token, 2, ProductFields.ALL))
+                .assertNext(page -> assertThat(page.getNextPageToken()).isNull())
+                .verifyComplete();
+
+        // Tokens issued for another sort are rejected like in ProductService
+        StepVerifier.create(productService.getProductPage(ProductSortKey.ID, token, 2, ProductFields.ALL))
+                .verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testSearchProducts_ValidatesBeforeQuerying() {
+        StepVerifier.create(productService.searchProducts(new ProductSearch(null, null, null, Sort.Direction.ASC, 10), ProductFields.ALL))
+                .verifyError(IllegalArgumentException.class);
+        verifyNoInteractions(mongoTemplate, attributeUsageTracker);
+
+        ProductSearch search = new ProductSearch("Stationery", null, null, Map.of("color", "red"), Sort.Direction.ASC, 10);
+        Product product = new Product(ID, "Pencil", "HB", "Stationery", 1.5);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(Flux.just(product));
+        StepVerifier.create(productService.searchProducts(search, ProductFields.ALL)).expectNext(product).verifyComplete();
+        verify(attributeUsageTracker).record(search.getAttributes().keySet());
+    }
+
+    @Test
+    public void testPatchProduct_SetsAndUnsetsFieldsAndRecordsEvent() {
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("price", 25);
+        changes.put("size", null);
+        Product previous = new Product(ID, "Product", "Description", "Category", 10.0);
+        previous.addField("size", "XL");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+                .thenReturn(Mono.just(previous));
+
+        ArgumentCaptor<Product> patched = ArgumentCaptor.forClass(Product.class);
+        StepVerifier.create(productService.patchProduct(ID, changes))
+                .assertNext(product -> assertThat(product.getPrice()).isEqualTo(25.0))
+                .verifyComplete();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Product.class));
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class)).containsEntry("price", 25.0);
+        assertThat(update.getValue().getUpdateObject().get("$unset", Document.class)).containsOnlyKeys("size");
+        verify(productEventOutbox).recordUpserted(patched.capture());
+        assertThat(patched.getValue().getAdditionalFields()).doesNotContainKey("size");
+        verify(categoryStatsService).record(previous, patched.getValue());
+    }
+
+    @Test
+    public void testPatchProduct_InvalidFields() {
+        StepVerifier.create(productService.patchProduct(ID, Map.of("price", -1)))
+                .verifyError(ProductValidationException.class);
+        verifyNoInteractions(mongoTemplate, productEventOutbox);
+    }
+
+    @Test
+    public void testDeleteProduct_RecordsEvent() {
+        Product product = new Product(ID, "Product", "Description", "Category", 10.0);
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Product.class))).thenReturn(Mono.just(product));
+
+        StepVerifier.create(productService.deleteProduct(ID)).verifyComplete();
+
+        verify(productEventOutbox).recordDeleted(ID);
+        verify(categoryStatsService).record(product, null);
+    }
+
+    @Test
+    public void testDeleteProduct_NothingToDelete() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Product.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(productService.deleteProduct(ID)).verifyComplete();
+        StepVerifier.create(productService.deleteProduct("not-an-id")).verifyComplete();
+
+        verifyNoInteractions(productEventOutbox, categoryStatsService, catalogVersion);
+    }
+}
@@ -0,0 +1,191 @@
+package com.ecom.prodmanager.snapshot;
+
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.SnapshotResult;
+import com.ecom.prodmanager.service.CatalogVersion;
+import com.ecom.prodmanager.service.CategoryStatsService;
+import com.ecom.prodmanager.service.ProductCache;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ProductSnapshotServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private MongoCollection<RawBsonDocument> collection;
+    private ProductCache productCache;
+    private CategoryStatsService categoryStatsService;
+    private ProductSnapshotService productSnapshotService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoCollection<Document> documents = mock(MongoCollection.class);
+        collection = mock(MongoCollection.class);
+        when(mongoTemplate.getCollectionName(Product.class)).thenReturn("products");
+        when(mongoTemplate.getCollection("products")).thenReturn(documents);
+        when(documents.withDocumentClass(RawBsonDocument.class)).thenReturn(collection);
+        productCache = mock(ProductCache.class);
+        categoryStatsService = mock(CategoryStatsService.class);
+        productSnapshotService = new ProductSnapshotService(mongoTemplate, productCache, categoryStatsService, mock(CatalogVersion.class),
+                directory.toString(), 100, 2);
+    }
+
+    @Test
+    public void testExportAndImport() throws IOException {
+        List<RawBsonDocument> products = products(250);
+        storeProducts(products);
+
+        Path file = productSnapshotService.resolve("catalog.snap");
+        SnapshotResult exported = productSnapshotService.exportSnapshot(file);
+        assertThat(exported.getProducts()).isEqualTo(250);
+        assertThat(exported.getBytes()).isEqualTo(Files.size(file));
+        assertThat(Files.exists(directory.resolve("catalog.snap.tmp"))).isFalse();
+
+        // The import writes the exported documents unchanged, in batches of 100
+        List<WriteModel<RawBsonDocument>> written = Collections.synchronizedList(new ArrayList<>());
+        when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenAnswer(invocation -> {
+            List<WriteModel<RawBsonDocument>> batch = invocation.getArgument(0);
+            written.addAll(batch);
+            return BulkWriteResult.acknowledged(batch.size(), 0, 0, 0, List.of(), List.of());
+        });
+        SnapshotResult imported = productSnapshotService.importSnapshot(file, false);
+
+        assertThat(imported.getProducts()).isEqualTo(250);
+        assertThat(imported.getSkipped()).isZero();
+        assertThat(imported.getChecksum()).isEqualTo(exported.getChecksum());
+        verify(collection, times(3)).bulkWrite(anyList(), any(BulkWriteOptions.class));
+        assertThat(written).map(model -> ((InsertOneModel<RawBsonDocument>) model).getDocument())
+                .containsExactlyInAnyOrderElementsOf(products);
+        verify(productCache).invalidateAll();
+        verify(categoryStatsService).rebuild();
+    }
+
+    @Test
+    public void testImportSkipsExistingProducts() throws IOException {
+        storeProducts(products(10));
+        Path file = productSnapshotService.resolve("catalog.snap");
+        productSnapshotService.exportSnapshot(file);
+
+        BulkWriteError duplicate = new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 3);
+        when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenThrow(new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(9, 0, 0, 0, List.of(), List.of()), List.of(duplicate), null,
+                new ServerAddress(), Set.of()));
+
+        SnapshotResult imported = productSnapshotService.importSnapshot(file, false);
+
+        assertThat(imported.getProducts()).isEqualTo(9);
+        assertThat(imported.getSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    public void testImportRejectsDamagedSnapshot() throws IOException {
+        storeProducts(products(10));
+        Path file = productSnapshotService.resolve("catalog.snap");
+        productSnapshotService.exportSnapshot(file);
+
+        // Flip a bit inside the last document
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - SnapshotFormat.TRAILER_SIZE - 3] ^= 1;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> productSnapshotService.importSnapshot(file, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("checksum");
+        verify(collection, never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    public void testImportRejectsUnfinishedExport() throws IOException {
+        storeProducts(products(10));
+        Path file = productSnapshotService.resolve("catalog.snap");
+        productSnapshotService.exportSnapshot(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - SnapshotFormat.TRAILER_SIZE);
+        }
+
+        assertThatThrownBy(() -> productSnapshotService.importSnapshot(file, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("did not finish");
+        verify(collection, never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    public void testImportVersionsLegacyProducts() {
+        RawBsonDocument legacy = RawBsonDocument.parse("{\"_id\": {\"$oid\": \"0123456789abcdef01234567\"}, \"name\": \"Pencil\", \"price\": 1.5}");
+
+        RawBsonDocument versioned = ProductSnapshotService.versioned(legacy);
+
+        assertThat(versioned.keySet()).containsExactly("_id", "name", "price", "_version");
+        assertThat(versioned.getInt64("_version").getValue()).isPositive();
+        assertThat(versioned.getString("name").getValue()).isEqualTo("Pencil");
+        // Products that already have a version keep it
+        assertThat(ProductSnapshotService.versioned(versioned)).isSameAs(versioned);
+    }
+
+    @Test
+    public void testResolveRejectsNamesOutsideSnapshotDirectory() {
+        assertThat(productSnapshotService.resolve("catalog.snap")).isEqualTo(directory.toAbsolutePath().normalize().resolve("catalog.snap"));
+        assertThatThrownBy(() -> productSnapshotService.resolve("../catalog.snap")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productSnapshotService.resolve("nested/catalog.snap")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> productSnapshotService.resolve("/etc/passwd")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void storeProducts(List<RawBsonDocument> products) {
+        FindIterable<RawBsonDocument> findIterable = mock(FindIterable.class);
+        MongoCursor<RawBsonDocument> cursor = mock(MongoCursor.class);
+        Iterator<RawBsonDocument> iterator = products.iterator();
+        when(collection.estimatedDocumentCount()).thenReturn((long) products.size());
+        when(collection.find()).thenReturn(findIterable);
+        when(findIterable.batchSize(anyInt())).thenReturn(findIterable);
+        when(findIterable.cursor()).thenReturn(cursor);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+    }
+
+    private static List<RawBsonDocument> products(int count) {
+        List<RawBsonDocument> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(RawBsonDocument.parse("{\"_id\": {\"$oid\": \"" + new ObjectId().toHexString() + "\"}, "
+                    + "\"_version\": {\"$numberLong\": \"" + (i + 1) + "\"}, \"name\": \"Product " + i + "\", \"category\": \"Stationery\", \"price\": " + (i + 0.5) + "}"));
+        }
+        return products;
+    }
+}
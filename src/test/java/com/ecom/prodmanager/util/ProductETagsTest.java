@@ -0,0 +1,57 @@
+package com.ecom.prodmanager.util;
+
+import com.ecom.prodmanager.model.Product;
+import com.ecom.prodmanager.model.ProductFields;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProductETagsTest {
+    private static final ObjectId ID = new ObjectId("0123456789abcdef01234567");
+
+    private Product sampleProduct(Long version) {
+        Product product = new Product(ID.toHexString(), "Pencil", "HB pencil", "Stationery", 1.5);
+        product.setVersion(version);
+        return product;
+    }
+
+    @Test
+    public void testTagFollowsVersion() {
+        String etag = ProductETags.of(sampleProduct(42L), ProductFields.ALL);
+
+        assertThat(etag).isEqualTo("\"0123456789abcdef01234567-2a\"");
+        assertThat(ProductETags.of(sampleProduct(43L), ProductFields.ALL)).isNotEqualTo(etag);
+        // Products written before versions were introduced
+        assertThat(ProductETags.of(sampleProduct(null), ProductFields.ALL)).isEqualTo("\"0123456789abcdef01234567-0\"");
+    }
+
+    @Test
+    public void testSparseReadsHaveOwnTags() {
+        String etag = ProductETags.of(sampleProduct(42L), ProductFields.ALL);
+        String sparse = ProductETags.of(sampleProduct(42L), ProductFields.parse("name,price"));
+
+        assertThat(sparse).startsWith("\"0123456789abcdef01234567-2a-").isNotEqualTo(etag);
+        assertThat(ProductETags.of(sampleProduct(42L), ProductFields.parse("price,name"))).isEqualTo(sparse);
+        assertThat(ProductETags.of(sampleProduct(42L), ProductFields.parse("name"))).isNotEqualTo(sparse);
+    }
+
+    @Test
+    public void testCatalogTag() {
+        assertThat(ProductETags.ofCatalog(255, ProductFields.ALL)).isEqualTo("\"all-ff\"");
+        assertThat(ProductETags.ofCatalog(255, ProductFields.parse("name"))).startsWith("\"all-ff-");
+    }
+
+    @Test
+    public void testVersionOf() {
+        String etag = ProductETags.of(sampleProduct(42L), ProductFields.ALL);
+
+        assertThat(ProductETags.versionOf(" " + etag, ID)).isEqualTo(OptionalLong.of(42));
+        assertThat(ProductETags.versionOf("W/" + etag, ID)).isEmpty();
+        assertThat(ProductETags.versionOf(etag, new ObjectId("0123456789abcdef01234568"))).isEmpty();
+        assertThat(ProductETags.versionOf(ProductETags.of(sampleProduct(42L), ProductFields.parse("name")), ID)).isEmpty();
+        assertThat(ProductETags.versionOf("\"other\"", ID)).isEmpty();
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecom.prodmanager.util;
+
+import com.ecom.prodmanager.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProductJsonModuleTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new ProductJsonModule());
+
+    private Product sampleProduct() {
+        Product product = new Product("0123456789abcdef01234567", "Pencil", "HB pencil", "Stationery", 1.5);
+        product.addField("color", "red");
+        product.addField("stock", 42);
+        product.addField("tags", List.of("wood", "office"));
+        product.addField("discontinued", null);
+        return product;
+    }
+
+    @Test
+    public void testSerialize_SameJsonAsAnnotations() throws Exception {
+        // The annotation-based mapping, with only the ObjectId serializer registered
+        ObjectMapper annotationMapper = new ObjectMapper()
+                .registerModule(new SimpleModule().addSerializer(ObjectId.class, new ObjectIdSerializer()));
+
+        Product product = sampleProduct();
+
+        assertThat(objectMapper.writeValueAsString(product)).isEqualTo(annotationMapper.writeValueAsString(product));
+    }
+
+    @Test
+    public void testDeserialize_RoundTrip() throws Exception {
+        Product product = objectMapper.readValue(objectMapper.writeValueAsString(sampleProduct()), Product.class);
+
+        assertThat(product.get_id()).isEqualTo(new ObjectId("0123456789abcdef01234567"));
+        assertThat(product.getName()).isEqualTo("Pencil");
+        assertThat(product.getDescription()).isEqualTo("HB pencil");
+        assertThat(product.getCategory()).isEqualTo("Stationery");
+        assertThat(product.getPrice()).isEqualTo(1.5);
+        assertThat(product.getAdditionalFields())
+                .containsEntry("color", "red")
+                .containsEntry("stock", 42)
+                .containsEntry("tags", List.of("wood", "office"))
+                .containsEntry("discontinued", null);
+    }
+
+    @Test
+    public void testDeserialize_Coercions() throws Exception {
+        Product product = objectMapper.readValue("{\"name\":\"Pencil\",\"price\":2,\"dimensions\":{\"length\":17}}", Product.class);
+
+        assertThat(product.get_id()).isNull();
+        assertThat(product.getDescription()).isNull();
+        assertThat(product.getPrice()).isEqualTo(2.0);
+        assertThat(product.getAdditionalFields()).containsEntry("dimensions", Map.of("length", 17));
+    }
+
+    @Test
+    public void testDeserialize_InvalidObjectId() {
+        assertThatThrownBy(() -> objectMapper.readValue("{\"_id\":\"not-an-id\"}", Product.class))
+                .isInstanceOf(InvalidFormatException.class);
+    }
+
+    @Test
+    public void testToString_UsesSharedMapper() throws Exception {
+        Product product = sampleProduct();
+
+        assertThat(product.toString()).isEqualTo(JsonUtil.toJson(product));
+        assertThat(product.toString()).contains("\"_id\":\"0123456789abcdef01234567\"");
+    }
+}